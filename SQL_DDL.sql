@@ -8,15 +8,21 @@ CREATE DOMAIN pdb_identity AS char(4);
 CREATE TABLE organism(
     oid serial NOT NULL,
     species varchar NOT NULL,
-    taxonomy_id taxa_identity,
-    PRIMARY KEY (oid)
+    taxonomy_id taxa_identity
 );
 CREATE TABLE genome(
     ac varchar(20) NOT NULL,
     nt_sequence varchar,
     oid integer NOT NULL,
-    PRIMARY KEY (ac),
-    FOREIGN KEY (oid) REFERENCES organism
+    seq_length integer,
+    nt_packed bytea,
+    complete boolean DEFAULT false NOT NULL
+);
+CREATE TABLE genome_chunk(
+    genome_ac varchar(20) NOT NULL,
+    start integer NOT NULL,
+    seq varchar,
+    seq_packed bytea
 );
 CREATE TABLE cds(
     cdsid serial NOT NULL,
@@ -28,17 +34,19 @@ CREATE TABLE cds(
     uniprot_ac uniprot_accession,
     prot_aa_seq varchar,
     genome_ac varchar(20),
-    PRIMARY KEY (cdsid),
-    FOREIGN KEY (genome_ac) REFERENCES genome (ac)
+    prot_seq_id integer,
+    prot_crc64 bigint,
+    prot_md5 uuid
 );
 CREATE TABLE cds_ntseq(
     ntsid serial NOT NULL,
     start integer NOT NULL,
     stop integer NOT NULL,
+    strand char(1),
     seq varchar,
-    cdsid integer,
-    PRIMARY KEY (ntsid),
-    FOREIGN KEY (cdsid) REFERENCES cds
+    seq_packed bytea,
+    genome_ac varchar(20),
+    cdsid integer
 );
 CREATE TABLE protein(
     uniprot_ac uniprot_accession NOT NULL,
@@ -48,46 +56,42 @@ CREATE TABLE protein(
     aa_sequence varchar,
     aa_seq_length smallint,
     uniprot_id varchar,
-    PRIMARY KEY (uniprot_ac)
+    seq_id integer,
+    seq_crc64 bigint,
+    seq_md5 uuid
 );
 CREATE TABLE protein_isoform(
 	isoform_ac uniprot_accession NOT NULL,
 	uniprot_ac uniprot_accession NOT NULL,
 	isoform_aa_seq varchar,
-	PRIMARY KEY (isoform_ac),
-	FOREIGN KEY (uniprot_ac) REFERENCES protein
+	seq_id integer,
+	seq_crc64 bigint,
+	seq_md5 uuid
 );
 CREATE TABLE protein2go(
     uniprot_ac uniprot_accession NOT NULL,
-    go_id go_identity NOT NULL,
-    PRIMARY KEY (uniprot_ac, go_id),
-    FOREIGN KEY (uniprot_ac) REFERENCES protein
+    go_id go_identity NOT NULL
 );
 CREATE TABLE go(
     go_id go_identity NOT NULL,
     name text NOT NULL,
     definition text,
-    namespace varchar(30),
-    PRIMARY KEY (go_id)
+    namespace varchar(30)
 );
 CREATE TABLE go_parent(
     go_id go_identity NOT NULL,
-    go_id_parent go_identity NOT NULL,
-    PRIMARY KEY (go_id, go_id_parent)
+    go_id_parent go_identity NOT NULL
 );
 CREATE TABLE protein2pfam(
     uniprot_ac uniprot_accession NOT NULL,
     seq_start smallint NOT NULL,
     seq_stop smallint NOT NULL,
-    pfam_ac pfam_accession NOT NULL,
-    PRIMARY KEY (uniprot_ac, seq_start, seq_stop),
-    FOREIGN KEY (uniprot_ac) REFERENCES protein
+    pfam_ac pfam_accession NOT NULL
 );
 CREATE TABLE pfam(
     pfam_ac pfam_accession NOT NULL,
     pfam_id varchar(30) NOT NULL,
-    description text,
-    PRIMARY KEY (pfam_ac)
+    description text
 );
 CREATE TABLE protein2pdb(
 	uniprot_ac uniprot_accession NOT NULL,
@@ -96,39 +100,166 @@ CREATE TABLE protein2pdb(
     pdb_id pdb_identity NOT NULL,
     chain varchar(5) NOT NULL,
     pdb_start varchar(5),
-    pdb_stop varchar(5),
-    --PRIMARY KEY (uniprot_ac, sp_start, pdb_id, chain, pdb_start),
-    FOREIGN KEY (uniprot_ac) REFERENCES protein
+    pdb_stop varchar(5)
 );
 CREATE TABLE pdb_chain(
     pdb_id pdb_identity NOT NULL,
     chain varchar(5) NOT NULL,
     aa_sequence varchar,
     taxonomy_id taxa_identity,
-    PRIMARY KEY (pdb_id, chain)
+    seq_id integer,
+    seq_crc64 bigint,
+    seq_md5 uuid
 );
 CREATE TABLE pdb(
     pdb_id pdb_identity NOT NULL,
     name text,
     method text,
-    resolution varchar(15),
-    PRIMARY KEY (pdb_id)
+    resolution varchar(15)
 );
+CREATE TABLE aa_seq(
+    seq_id serial NOT NULL,
+    seq_hash bytea NOT NULL,
+    aa_sequence varchar NOT NULL,
+    length integer
+);
+CREATE TABLE organism_stats(
+    oid integer NOT NULL,
+    genomes integer NOT NULL,
+    cds integer NOT NULL,
+    cds_uniprot integer NOT NULL,
+    proteins_go integer NOT NULL,
+    proteins_pfam integer NOT NULL,
+    proteins_pdb integer NOT NULL,
+    genome_length bigint NOT NULL
+);
+CREATE TABLE load_generation(
+    generation serial NOT NULL,
+    finished timestamp DEFAULT CURRENT_TIMESTAMP
+);
+
+/*
+Primary keys, indexes and foreign keys, built by TAGOPSIN after inserting data
+*/
+ALTER TABLE organism ADD PRIMARY KEY (oid);
+ALTER TABLE genome ADD PRIMARY KEY (ac);
+ALTER TABLE genome_chunk ADD PRIMARY KEY (genome_ac, start);
+ALTER TABLE cds ADD PRIMARY KEY (cdsid);
+ALTER TABLE cds_ntseq ADD PRIMARY KEY (ntsid);
+ALTER TABLE protein ADD PRIMARY KEY (uniprot_ac);
+ALTER TABLE protein_isoform ADD PRIMARY KEY (isoform_ac);
+ALTER TABLE protein2go ADD PRIMARY KEY (uniprot_ac, go_id);
+ALTER TABLE go ADD PRIMARY KEY (go_id);
+ALTER TABLE go_parent ADD PRIMARY KEY (go_id, go_id_parent);
+ALTER TABLE protein2pfam ADD PRIMARY KEY (uniprot_ac, seq_start, seq_stop);
+ALTER TABLE pfam ADD PRIMARY KEY (pfam_ac);
+ALTER TABLE pdb_chain ADD PRIMARY KEY (pdb_id, chain);
+ALTER TABLE pdb ADD PRIMARY KEY (pdb_id);
+ALTER TABLE aa_seq ADD PRIMARY KEY (seq_id);
+ALTER TABLE organism_stats ADD PRIMARY KEY (oid);
+ALTER TABLE protein2pdb ADD PRIMARY KEY (uniprot_ac, sp_start, sp_stop, pdb_id, chain, pdb_start, pdb_stop);
+CREATE INDEX genome_oid_idx ON genome (oid);
+CREATE INDEX prot_id_idx ON cds (protein_id);
+CREATE INDEX gen_ac_idx ON cds (genome_ac);
+CREATE INDEX cds_uniprot_ac_idx ON cds (uniprot_ac);
+CREATE INDEX cds_ntseq_cdsid_idx ON cds_ntseq (cdsid);
+CREATE INDEX cds_ntseq_genome_start_idx ON cds_ntseq (genome_ac, start);
+CREATE INDEX cds_ntseq_genome_stop_idx ON cds_ntseq (genome_ac, stop);
+CREATE INDEX protein_isoform_uniprot_ac_idx ON protein_isoform (uniprot_ac);
+CREATE INDEX protein2go_go_id_idx ON protein2go (go_id);
+CREATE INDEX protein2pfam_pfam_ac_idx ON protein2pfam (pfam_ac);
+CREATE INDEX protein2pdb_uniprot_ac_idx ON protein2pdb (uniprot_ac);
+CREATE INDEX protein2pdb_pdb_id_chain_idx ON protein2pdb (pdb_id, chain);
+CREATE UNIQUE INDEX aa_seq_seq_hash_idx ON aa_seq (seq_hash);
+CREATE INDEX cds_prot_seq_id_idx ON cds (prot_seq_id);
+CREATE INDEX cds_prot_checksum_idx ON cds (prot_crc64, prot_md5);
+CREATE INDEX protein_seq_checksum_idx ON protein (seq_crc64, seq_md5);
+CREATE INDEX protein_isoform_seq_checksum_idx ON protein_isoform (seq_crc64, seq_md5);
+CREATE INDEX pdb_chain_seq_checksum_idx ON pdb_chain (seq_crc64, seq_md5);
+ALTER TABLE genome ADD CONSTRAINT genome_oid_fkey FOREIGN KEY (oid) REFERENCES organism;
+ALTER TABLE organism_stats ADD CONSTRAINT organism_stats_oid_fkey FOREIGN KEY (oid) REFERENCES organism;
+ALTER TABLE genome_chunk ADD CONSTRAINT genome_chunk_genome_ac_fkey FOREIGN KEY (genome_ac) REFERENCES genome (ac);
+ALTER TABLE cds ADD CONSTRAINT cds_genome_ac_fkey FOREIGN KEY (genome_ac) REFERENCES genome (ac);
+ALTER TABLE cds_ntseq ADD CONSTRAINT cds_ntseq_cdsid_fkey FOREIGN KEY (cdsid) REFERENCES cds;
+ALTER TABLE protein_isoform ADD CONSTRAINT protein_isoform_uniprot_ac_fkey FOREIGN KEY (uniprot_ac) REFERENCES protein;
+ALTER TABLE protein2go ADD CONSTRAINT protein2go_uniprot_ac_fkey FOREIGN KEY (uniprot_ac) REFERENCES protein;
+ALTER TABLE protein2pfam ADD CONSTRAINT protein2pfam_uniprot_ac_fkey FOREIGN KEY (uniprot_ac) REFERENCES protein;
+ALTER TABLE protein2pdb ADD CONSTRAINT protein2pdb_uniprot_ac_fkey FOREIGN KEY (uniprot_ac) REFERENCES protein;
+ALTER TABLE cds ADD CONSTRAINT cds_prot_seq_id_fkey FOREIGN KEY (prot_seq_id) REFERENCES aa_seq;
+ALTER TABLE protein ADD CONSTRAINT protein_seq_id_fkey FOREIGN KEY (seq_id) REFERENCES aa_seq;
+ALTER TABLE protein_isoform ADD CONSTRAINT protein_isoform_seq_id_fkey FOREIGN KEY (seq_id) REFERENCES aa_seq;
+ALTER TABLE pdb_chain ADD CONSTRAINT pdb_chain_seq_id_fkey FOREIGN KEY (seq_id) REFERENCES aa_seq;
+ALTER TABLE go_parent ADD CONSTRAINT go_parent_go_id_fkey FOREIGN KEY (go_id) REFERENCES go (go_id);
+ALTER TABLE go_parent ADD CONSTRAINT go_parent_go_id_parent_fkey FOREIGN KEY (go_id_parent) REFERENCES go (go_id);
+ALTER TABLE protein2go ADD CONSTRAINT protein2go_go_id_fkey FOREIGN KEY (go_id) REFERENCES go (go_id);
+ALTER TABLE protein2pfam ADD CONSTRAINT protein2pfam_pfam_ac_fkey FOREIGN KEY (pfam_ac) REFERENCES pfam (pfam_ac);
+ALTER TABLE protein2pdb ADD CONSTRAINT protein2pdb_pdb_id_chain_fkey FOREIGN KEY (pdb_id, chain) REFERENCES pdb_chain (pdb_id, chain);
+ALTER TABLE pdb_chain ADD CONSTRAINT pdb_chain_pdb_id_fkey FOREIGN KEY (pdb_id) REFERENCES pdb (pdb_id);
+
 /*
-To enforce referential integrity after inserting data
+Functions and view decoding packed sequences and reading the sequence of CDS segments stored without one from the
+genome (PostgreSQL only)
+*/
+CREATE OR REPLACE FUNCTION nt_int4(bytea, integer) RETURNS integer AS $$
+    SELECT (get_byte($1, $2) << 24) | (get_byte($1, $2 + 1) << 16) | (get_byte($1, $2 + 2) << 8) | get_byte($1, $2 + 3)
+$$ LANGUAGE sql IMMUTABLE STRICT;
+CREATE OR REPLACE FUNCTION nt_decode(bytea) RETURNS varchar AS $$
+DECLARE
+    n integer := nt_int4($1, 0);
+    pos integer := 4 + (n + 3) / 4;
+    runs integer := nt_int4($1, pos);
+    quad text[] := '{aaaa,aaac,aaag,aaat,aaca,aacc,aacg,aact,aaga,aagc,aagg,aagt,aata,aatc,aatg,aatt,acaa,acac,acag,acat,acca,accc,accg,acct,acga,acgc,acgg,acgt,acta,actc,actg,actt,agaa,agac,agag,agat,agca,agcc,agcg,agct,agga,aggc,aggg,aggt,agta,agtc,agtg,agtt,ataa,atac,atag,atat,atca,atcc,atcg,atct,atga,atgc,atgg,atgt,atta,attc,attg,attt,caaa,caac,caag,caat,caca,cacc,cacg,cact,caga,cagc,cagg,cagt,cata,catc,catg,catt,ccaa,ccac,ccag,ccat,ccca,cccc,cccg,ccct,ccga,ccgc,ccgg,ccgt,ccta,cctc,cctg,cctt,cgaa,cgac,cgag,cgat,cgca,cgcc,cgcg,cgct,cgga,cggc,cggg,cggt,cgta,cgtc,cgtg,cgtt,ctaa,ctac,ctag,ctat,ctca,ctcc,ctcg,ctct,ctga,ctgc,ctgg,ctgt,ctta,cttc,cttg,cttt,gaaa,gaac,gaag,gaat,gaca,gacc,gacg,gact,gaga,gagc,gagg,gagt,gata,gatc,gatg,gatt,gcaa,gcac,gcag,gcat,gcca,gccc,gccg,gcct,gcga,gcgc,gcgg,gcgt,gcta,gctc,gctg,gctt,ggaa,ggac,ggag,ggat,ggca,ggcc,ggcg,ggct,ggga,gggc,gggg,gggt,ggta,ggtc,ggtg,ggtt,gtaa,gtac,gtag,gtat,gtca,gtcc,gtcg,gtct,gtga,gtgc,gtgg,gtgt,gtta,gttc,gttg,gttt,taaa,taac,taag,taat,taca,tacc,tacg,tact,taga,tagc,tagg,tagt,tata,tatc,tatg,tatt,tcaa,tcac,tcag,tcat,tcca,tccc,tccg,tcct,tcga,tcgc,tcgg,tcgt,tcta,tctc,tctg,tctt,tgaa,tgac,tgag,tgat,tgca,tgcc,tgcg,tgct,tgga,tggc,tggg,tggt,tgta,tgtc,tgtg,tgtt,ttaa,ttac,ttag,ttat,ttca,ttcc,ttcg,ttct,ttga,ttgc,ttgg,ttgt,ttta,tttc,tttg,tttt}';
+    seq varchar;
+BEGIN
+    SELECT left(string_agg(quad[get_byte($1, i) + 1], '' ORDER BY i), n)
+      INTO seq FROM generate_series(4, pos - 1) i;
+    seq := coalesce(seq, '');
+    IF runs = 0 THEN
+        RETURN seq;
+    END IF;
+    SELECT string_agg(substr(seq, r.prev + 1, r.p - r.prev) || repeat(chr(r.c), r.l), '' ORDER BY r.k) || substr(seq, max(r.p + r.l) + 1)
+      INTO seq
+      FROM (SELECT k, p, l, c, coalesce(lag(p + l) OVER (ORDER BY k), 0) AS prev
+              FROM (SELECT k, nt_int4($1, pos + 4 + 9 * k) AS p, nt_int4($1, pos + 8 + 9 * k) AS l, get_byte($1, pos + 12 + 9 * k) AS c
+                      FROM generate_series(0, runs - 1) k) x) r;
+    RETURN seq;
+END
+$$ LANGUAGE plpgsql IMMUTABLE STRICT;
+CREATE OR REPLACE FUNCTION genome_region(varchar, integer, integer) RETURNS varchar AS $$
+    SELECT coalesce(
+        (SELECT substr(string_agg(coalesce(c.seq, nt_decode(c.seq_packed)), '' ORDER BY c.start), $2 - min(c.start) + 1, $3 - $2 + 1)
+           FROM genome_chunk c
+          WHERE c.genome_ac = $1 AND c.start <= $3
+            AND c.start >= (SELECT coalesce(max(m.start), 1) FROM genome_chunk m
+                             WHERE m.genome_ac = $1 AND m.start <= $2)),
+        (SELECT substr(coalesce(g.nt_sequence, nt_decode(g.nt_packed)), $2, $3 - $2 + 1) FROM genome g WHERE g.ac = $1))
+$$ LANGUAGE sql STABLE;
+CREATE OR REPLACE FUNCTION cds_sequence(integer) RETURNS varchar AS $$
+    SELECT string_agg(CASE WHEN s.strand = '-' THEN reverse(translate(s.seq, 'ACGTacgt', 'TGCAtgca')) ELSE s.seq END, ''
+                      ORDER BY CASE WHEN s.type = 'complement_join' THEN -s.ntsid ELSE s.ntsid END)
+      FROM (SELECT n.ntsid, n.strand, c.type, coalesce(n.seq, nt_decode(n.seq_packed), genome_region(c.genome_ac, n.start, n.stop)) AS seq
+              FROM cds_ntseq n JOIN cds c ON c.cdsid = n.cdsid
+             WHERE n.cdsid = $1) s
+$$ LANGUAGE sql STABLE;
+CREATE OR REPLACE VIEW cds_ntseq_seq AS
+    SELECT s.ntsid, s.start, s.stop, s.strand, coalesce(s.seq, nt_decode(s.seq_packed), genome_region(c.genome_ac, s.start, s.stop)) AS seq, s.cdsid
+      FROM cds_ntseq s JOIN cds c ON c.cdsid = s.cdsid;
 
-ALTER TABLE go_parent 
-    ADD CONSTRAINT go_parent_go_id_fkey FOREIGN KEY (go_id) REFERENCES go (go_id),
-    ADD CONSTRAINT go_parent_go_id_parent_fkey FOREIGN KEY (go_id_parent) REFERENCES go (go_id);
-ALTER TABLE protein2go
-    ADD CONSTRAINT protein2go_go_id_fkey FOREIGN KEY (go_id) REFERENCES go (go_id);
-ALTER TABLE protein2pfam
-	ADD CONSTRAINT protein2pfam_pfam_ac_fkey FOREIGN KEY (pfam_ac) REFERENCES pfam (pfam_ac);
-ALTER TABLE protein2pdb
-    ADD CONSTRAINT protein2pdb_pdb_id_chain_fkey FOREIGN KEY (pdb_id, chain) REFERENCES pdb_chain (pdb_id, chain);
-ALTER TABLE pdb_chain
-	ADD CONSTRAINT pdb_chain_pdb_id_fkey FOREIGN KEY (pdb_id) REFERENCES pdb (pdb_id);
+/*
+Range of each CDS segment, generated from start and stop and indexed with the genome AC for overlap queries. Generated
+columns need PostgreSQL 12 or higher: on an older server neither the column nor its index is created. TAGOPSIN builds
+the index after inserting data.
 */
+DO $$
+BEGIN
+    IF current_setting('server_version_num')::integer >= 120000 THEN
+        CREATE EXTENSION IF NOT EXISTS btree_gist;
+        EXECUTE 'ALTER TABLE cds_ntseq ADD COLUMN IF NOT EXISTS span int4range '
+             || 'GENERATED ALWAYS AS (int4range(least(start, stop), greatest(start, stop), ''[]'')) STORED';
+        EXECUTE 'CREATE INDEX IF NOT EXISTS cds_ntseq_span_idx ON cds_ntseq USING gist (genome_ac, span)';
+    END IF;
+END
+$$;
 
 /*
 The following foreign key constraint cannot be enforced because the CDS uniprot_ac column contains entries from both
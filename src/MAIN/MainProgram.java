@@ -12,6 +12,7 @@ import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Formatter;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -25,23 +26,35 @@ import genbank.ProkaryotesAC;
 import genbank.VirusesAC;
 import go.GO;
 import mapping.GenBank2UniProt;
+import mapping.Sequence2UniProt;
 import mapping.UniProt2GO;
 import mapping.UniProt2PDB;
 import pdb.PDB_Chain_Taxa;
 import pdb.PDB_Entry;
 import pdb.PDB_SeqRes;
 import pfam.Pfam;
+import repository.QueryCache;
 import taxa.Taxonomy;
 import uniprot.Protein;
 import uniprot.ReadFastaIsoform;
 import uniprot.ReadFastaProtein;
+import util.BulkLoader;
+import util.ColumnarExport;
+import util.ConnectDB;
 import util.ConnectParam;
 import util.CreateDB;
 import util.DBqueries;
+import util.H2Storage;
 import util.History;
+import util.JdbcStats;
+import util.LoadPhase;
+import util.OrganismStats;
 import util.SQL_DDL;
 import util.StdFiles;
+import util.Storage;
 import util.Utility;
+import util.WalStats;
+import util.WriteBehind;
 
 /**
  * This class is the main program of TAGOPSIN. It accepts user input and contains a number of functions 
@@ -73,8 +86,15 @@ public class MainProgram {
 		
         printWelcomeMessage();
         check_wget();
-        create_database();
-        create_db_relations();
+        
+        //an embedded database (see class H2Storage.java) needs neither a server nor psql;
+        //the incremental mode loads into the existing database, whose functions are replaced
+        if (!Storage.get().isEmbedded() && LoadPhase.isIncremental())
+        	update_db_functions();
+        else if (!Storage.get().isEmbedded()) {
+        	create_database();
+        	create_db_relations();
+        }
         dir = getDataDirFromHistory();
         
         boolean dataFilesExist = History.checkStandardFiles(dir);
@@ -88,6 +108,12 @@ public class MainProgram {
 			System.out.println("\nAll required data files are present. Proceeding now...");
         
         check_database_conn();
+        if (LoadPhase.isIncremental())
+        	LoadPhase.dropForeignKeys();
+        if (ColumnarExport.isEnabled())
+        	check_export();
+        WalStats.start();
+        LoadPhase.registerAbortFallback();
         
         //NCBI TAXONOMY DATASET
         //Retrieve data from names.dmp for a specified organism, and insert into PostgreSQL
@@ -104,13 +130,15 @@ public class MainProgram {
 	    }
 		System.out.println("Retrieving taxonomy IDs and scientific names from names.dmp...");
 		Taxonomy.parseFile(dir+"/taxdump/names.dmp", organism);
+		finish_stage("Taxonomy");
 		System.out.println("Saved to \"organism\" relation");
 		
 		
 		//NCBI GENBANK DATASET
 		//Get RefSeq genome ACs from eukaryotes.txt, prokaryotes.txt or viruses.txt, and write EFetch URLs
+		//(in the incremental mode, files downloaded by an earlier run are kept)
 		file = new File(dir + "/genbank");
-		if (file.exists())
+		if (file.exists() && !LoadPhase.isIncremental())
 			rt.exec("rm -r " + dir + "/genbank");
 		rt.exec("mkdir " + dir + "/genbank");
 		rt.exec("mkdir " + dir + "/genbank/genomes");
@@ -146,34 +174,28 @@ public class MainProgram {
 		
 		//Download genomes in GenBank flat file format from NCBI server using E-utilities
 		System.out.println("Downloading genomic data files from NCBI via E-utilities...");
-		try {
-			Process proc = rt.exec("bash " + dir + "/genbank/wget_genomes.sh");
-			proc.waitFor();
-		} catch (InterruptedException e) {
-			System.out.println("Process interrupted. Terminating now...");
-			System.exit(1);
+		if (!LoadPhase.isIncremental()) {
+			try {
+				Process proc = rt.exec("bash " + dir + "/genbank/wget_genomes.sh");
+				proc.waitFor();
+			} catch (InterruptedException e) {
+				System.out.println("Process interrupted. Terminating now...");
+				System.exit(1);
+			}
 		}
 		
-		//Check number of genomes downloaded, and restart previous process if necessary 
-		List<String> gbFileList = Utility.getFilesInDirectory(dir+"/genbank/genomes"); 
-		Set<String> setGBFiles = new HashSet<>();
-		Set<String> setGBACs_cp = new HashSet<>();
+		//Check genomes downloaded, and fetch the missing ones if necessary 
+		Set<String> setLoaded = new HashSet<>();
+		if (LoadPhase.isIncremental()) {
+			LoadPhase.removeIncompleteGenomes();
+			setLoaded.addAll(Arrays.asList(DBqueries.getGenomeACs()));
+		}
+		Set<String> setGBACs_cp = getMissingGenomes(setGBACs, setLoaded);
 		
-		while (setGBACs.size() != gbFileList.size()) {
+		while (!setGBACs_cp.isEmpty()) {
 			
-			System.out.printf("Number of files downloaded is %d of %d\n", gbFileList.size(), setGBACs.size());
+			System.out.printf("Number of files missing is %d of %d\n", setGBACs_cp.size(), setGBACs.size());
 			System.out.println("Retrieving missing file(s) from NCBI via E-utilities...");
-			
-			for (String filePath : gbFileList) {
-				String fname = Paths.get(filePath).getFileName().toString().split("\\.")[0];
-				setGBFiles.add(fname);
-			}
-			
-			//make a copy of the original set of genome ACs
-			setGBACs_cp.addAll(setGBACs);
-			
-			//remove already downloaded files from the duplicate 
-			setGBACs_cp.removeAll(setGBFiles);
 	
 			//write new script
 			String wgetFileNew = dir + "/genbank/wget_genomes_new.sh";		
@@ -197,7 +219,7 @@ public class MainProgram {
 				System.out.println("Process interrupted. Terminating now...");
 				System.exit(1);
 			}
-			gbFileList = Utility.getFilesInDirectory(dir+"/genbank/genomes");
+			setGBACs_cp = getMissingGenomes(setGBACs, setLoaded);
 		}
 		System.out.println("Saved in \"genomes\"");
 		
@@ -209,6 +231,8 @@ public class MainProgram {
 			System.out.println("Error parsing GenBank files. Terminating now...");
 			System.exit(1);
 		}
+		finish_stage("GenBank");
+		LoadPhase.markGenomesComplete();
 		System.out.println("Saved to \"cds\", \"cds_ntseq\" and \"genome\" relations");
 		
 		
@@ -242,24 +266,36 @@ public class MainProgram {
 			}
 		}
 		
+		//Map the CDS left unmapped onto Swiss-Prot entries of identical sequence (see class Sequence2UniProt.java)
+		if (Sequence2UniProt.isEnabled()) {
+			System.out.println("Mapping unmapped CDS onto Swiss-Prot entries of identical sequence...");
+			int mapped = Sequence2UniProt.parseFile(dir+"/uniprot/uniprot_sprot.fasta");
+			finish_stage("Sequence2UniProt");
+			System.out.println(mapped + " CDS mapped in \"cds\" relation");
+		}
+		
 		//Get Swiss-Prot information of interest, and insert into PostgreSQL
 		System.out.println("Retrieving Swiss-Prot information from uniprot_sprot.dat for UniProt ACs of interest...");		
 		Protein.parseFile(dir+"/uniprot/uniprot_sprot.dat");
+		finish_stage("Protein");
 		System.out.println("Saved to \"protein\" relation");
 		
 		//Retrieve protein names and amino acid sequences, and update Protein relation in PostgreSQL
 		System.out.println("Reading uniprot_sprot.fasta to retrieve amino acid sequences and protein names...");		 
 		ReadFastaProtein.parseFile(dir+"/uniprot/uniprot_sprot.fasta");		
+		finish_stage("ReadFastaProtein");
 		System.out.println("Saved to \"protein\" relation");
 		
 		//Get ACs and sequences of protein isoforms, and insert into PostgreSQL
 		System.out.println("Retrieving ACs and sequences of protein isoforms from uniprot_sprot_varsplic.fasta...");
 		ReadFastaIsoform.parseFile(dir+"/uniprot/uniprot_sprot_varsplic.fasta");
+		finish_stage("ReadFastaIsoform");
 		System.out.println("Saved to \"protein_isoform\" relation");
 		
 		//Map UniProt ACs onto GO IDs, and insert into PostgreSQL
 		System.out.println("Mapping UniProt ACs onto GO IDs...");
 		UniProt2GO.parseFile(dir+"/uniprot/uniprot_sprot.dat");
+		finish_stage("UniProt2GO");
 		System.out.println("Saved to \"protein2go\" relation");
 		
 		
@@ -267,6 +303,7 @@ public class MainProgram {
 		//Retrieve Gene Ontology terms for GO IDs of interest, and insert into PostgreSQL
 		System.out.println("Retrieving all Gene Ontology terms from go-basic.obo...");  		
 		GO.parseFile(dir+"/gene_ontology/go-basic.obo");
+		finish_stage("GO");
 		System.out.println("Saved to \"go\" and \"go_parent\" relations");
 		
 		
@@ -274,6 +311,7 @@ public class MainProgram {
 		//Retrieve Pfam data of interest and insert into corresponding relations in PostgreSQL
 		System.out.println("Mapping UniProt ACs onto Pfam ACs, and retrieving Pfam entries of interest from Pfam-A.full.uniprot...");
 		Pfam.parseFile(dir+"/pfam/Pfam-A.full.uniprot");	 		
+		finish_stage("Pfam");
 		System.out.println("Saved to \"protein2pfam\" and \"pfam\" relations");
 		
 		
@@ -281,26 +319,59 @@ public class MainProgram {
 		//Map UniProt ACs onto PDB IDs and chains and taxa IDs, and insert into PostgreSQL
 		System.out.println("Mapping UniProt ACs onto PDB IDs and chains...");
 		UniProt2PDB.parseFile(dir+"/pdb/pdb_chain_uniprot.tsv");
+		finish_stage("UniProt2PDB");
 		System.out.println("Saved to \"protein2pdb\" relation");
 		System.out.println("Getting taxonomy information from pdb_chain_taxonomy.tsv for PDB IDs of interest...");
 		PDB_Chain_Taxa.parseFile(dir+"/pdb/pdb_chain_taxonomy.tsv");
+		finish_stage("PDB_Chain_Taxa");
 		System.out.println("Saved to \"pdb_chain\" relation");
 		
 		//Retrieve structural information of interest and insert into PostgreSQL
 		System.out.println("Retrieving PDB entries of interest from entries.idx...");
 		PDB_Entry.parseFile(dir+"/pdb/entries.idx");
+		finish_stage("PDB_Entry");
 		System.out.println("Saved to \"pdb\" relation");
 		System.out.println("Getting amino acid sequences from pdb_seqres.txt for PDB IDs of interest...");
 		PDB_SeqRes.parseFile(dir+"/pdb/pdb_seqres.txt");
+		finish_stage("PDB_SeqRes");
 		System.out.println("Saved");
 		
-		long t2 = System.nanoTime();
-		System.out.printf("Runtime = %.2f min\n", (t2-t1)*1.6667e-11);
+		//Counters maintained by the stages above (see class OrganismStats.java)
+		OrganismStats.save();
+		
+		
+		//Build primary keys, secondary indexes and foreign keys now that all data are loaded
+		System.out.println("Building primary keys, indexes and foreign keys in database \"tagopsin\"...");
+		Storage.get().buildDeferred();
+		System.out.println("Done");
 		
+		//Empty the caches of the read API (see class QueryCache.java), also in other processes
+		QueryCache.markLoadFinished();
+		
+		ColumnarExport.finish();
+		
+		long t2 = System.nanoTime();
+		System.out.printf("Runtime = %.2f min (%s)\n", (t2-t1)*1.6667e-11, Storage.get().getName());
+		WalStats.print();
+		JdbcStats.print();
+		BulkLoader.printRowCounters();
+		System.out.println(ConnectDB.getPool().getStats());
+		ConnectDB.shutdown();
+
 		input.close();
 
 	}//end MAIN
 
+	//Wait for the writes of a stage, and stop the run if some of them failed
+	public static void finish_stage(String stage) {
+		
+		long failed = WriteBehind.finishStage(stage);
+		if (failed > 0) {
+			System.out.printf("%s: %d batches could not be written. Terminating now...\n", stage, failed);
+			System.exit(1);
+		}
+	}
+	
 	public static void printWelcomeMessage() {
 		
 		System.out.println("TAGOPSIN - TAxonomy, Gene, Ontology, Protein, Structure INtegrated\n"
@@ -377,15 +448,40 @@ public class MainProgram {
 		}
 	}
 	
+	//Genome ACs with neither a file in directory "genomes" nor a row in relation "genome"
+	public static Set<String> getMissingGenomes(Set<String> setGBACs, Set<String> setLoaded) throws IOException {
+		
+		Set<String> missing = new HashSet<>(setGBACs);
+		missing.removeAll(setLoaded);
+		
+		for (String filePath : Utility.getFilesInDirectory(dir+"/genbank/genomes"))
+			missing.remove(Paths.get(filePath).getFileName().toString().split("\\.")[0]);
+		
+		return missing;
+	}
+	
 	public static void create_db_relations() {
 		
 		//Create relations (table structures) in PostgreSQL
 		System.out.println("Creating relations in database \"tagopsin\"...");
 		
+		run_ddl(SQL_DDL.getSQL(LoadPhase.isUnlogged(), LoadPhase.getPartitions()) + "\n" + SQL_DDL.getFunctionSQL());
+	}
+	
+	public static void update_db_functions() {
+		
+		//Replace the SQL functions of the existing database "tagopsin" (statements that can be re-run)
+		System.out.println("Updating functions in database \"tagopsin\"...");
+		
+		run_ddl(SQL_DDL.getFunctionSQL());
+	}
+	
+	public static void run_ddl(String sql) {
+		
 		try {
 			//write the SQL code in temporary file "SQL_DDL.sql"
 			output = new Formatter("SQL_DDL.sql");
-			output.format("%s", SQL_DDL.getSQL());
+			output.format("%s", sql);
 			output.close();
 			
 			//execute "SQL_DDL.sql" using psql command with default username
@@ -479,6 +575,11 @@ public class MainProgram {
 	
 	public static void check_database_conn() throws IOException {
 		
+		if (Storage.get().isEmbedded()) {
+			check_embedded_conn();
+			return;
+		}
+		
 		//Download JDBC JAR and extract files
 		System.out.println("Downloading https://jdbc.postgresql.org/download/postgresql-42.2.16.jar...");
 		wgetFile(new URL("https://jdbc.postgresql.org/download/postgresql-42.2.16.jar"),"postgresql-42.2.16.jar",dir);	
@@ -516,6 +617,48 @@ public class MainProgram {
 		
 	}
 	
+	public static void check_embedded_conn() throws IOException {
+		
+		//Download H2 JAR and extract files
+		System.out.println("Downloading " + H2Storage.JAR_URL + "...");
+		wgetFile(new URL(H2Storage.JAR_URL), H2Storage.JAR, dir);
+		System.out.println("Done");
+		
+		System.out.println("Extracting files from " + H2Storage.JAR + "...");
+		rt.exec("jar xf " + dir + "/" + H2Storage.JAR);
+		System.out.println("Done");
+		
+		//Open (or create) the embedded database "tagopsin", and create its relations
+		System.out.println("Opening embedded database \"tagopsin\" (H2)...");
+		
+		String url = H2Storage.getUrl(dir);
+		cparam = new ConnectParam(url, "sa", "");
+		
+		try {
+			DriverManager.getConnection(url, "sa", "").close();
+			System.out.println("Connection successful\n");
+		} catch (SQLException e) {
+			System.out.println(e.getMessage());
+			System.exit(1);
+		}
+		
+		System.out.println("Creating relations in database \"tagopsin\"...");
+		((H2Storage) Storage.get()).createRelations();
+		System.out.println("Done");
+	}
+	
+	public static void check_export() throws IOException {
+		
+		//Download DuckDB JAR and extract files, for the Parquet export
+		System.out.println("Downloading " + ColumnarExport.JAR_URL + "...");
+		wgetFile(new URL(ColumnarExport.JAR_URL), ColumnarExport.JAR, dir);
+		System.out.println("Done");
+		
+		System.out.println("Extracting files from " + ColumnarExport.JAR + "...");
+		rt.exec("jar xf " + dir + "/" + ColumnarExport.JAR);
+		System.out.println("Done");
+	}
+	
 	public static ConnectParam access_conn_param() {
 		return cparam;
 	}
@@ -609,6 +752,7 @@ public class MainProgram {
 		System.out.println("Mapping RefSeq protein IDs onto UniProt ACs...");
 		
 		GenBank2UniProt.parseFile(dir+"/uniprot/"+fName.substring(0, fName.length()-3), type, organism);
+		finish_stage("GenBank2UniProt");
 		
 		System.out.println("Saved to \"cds\" relation");
 		
@@ -640,6 +784,7 @@ public class MainProgram {
 		System.out.println("Mapping RefSeq protein IDs onto UniProt ACs...");
 		
 		GenBank2UniProt.parseFile(dir+"/uniprot/idmapping.dat", type, organism);	
+		finish_stage("GenBank2UniProt");
 		
 		System.out.println("Saved to \"cds\" relation");
 		
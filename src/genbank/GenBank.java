@@ -9,16 +9,30 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Formatter;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Scanner;
+import java.util.Set;
 
+import util.BulkLoader;
+import util.Config;
 import util.ConnectDB;
 import util.DBqueries;
+import util.KeyAllocator;
+import util.LoadPhase;
+import util.NtCodec;
+import util.OrganismStats;
+import util.ParallelLoader;
+import util.RangePartitioner;
+import util.Registry;
 import util.Scripts;
+import util.SequenceChecksum;
+import util.SequenceDictionary;
 import util.Utility;
 
 
@@ -28,6 +42,11 @@ import util.Utility;
  * NT sequence etc.), and inserts it into PostgreSQL.  
  * This version adds functionality for eukaryotes and uses shell scripting to extract coding 
  * sequences from the genome.
+ * CDS IDs are allocated on the client side, so that "cds" and "cds_ntseq" rows are streamed 
+ * together to PostgreSQL.
+ * In the lazy mode (tagopsin.cds.lazySequence), "cds_ntseq" of prokaryotes and viruses keeps 
+ * only the position and strand of each segment, whose sequence is read from the stored 
+ * genome when needed (see function cds_sequence() of class SQL_DDL.java).
  * 
  * @author 	Eshan Bundhoo and Anisah W. Ghoorah, University of Mauritius
  * @since	2019-12-17
@@ -36,6 +55,8 @@ import util.Utility;
  */
 
 public class GenBank {
+	
+	private static final boolean LAZY_CDS = Config.getBoolean("tagopsin.cds.lazySequence", false);
 
 	public static void parseFiles(String dirPath1, String orgType, String dirPath2) throws IOException, InterruptedException {
 		
@@ -64,6 +85,25 @@ public class GenBank {
 		List<String> fileList = Utility.getFilesInDirectory(dirPath1);
 		
 		int count = 1;
+		
+		//In the incremental mode, genomes loaded by an earlier run are skipped
+		Set<String> loadedGenomes = new HashSet<>();
+		if (LoadPhase.isIncremental())
+			loadedGenomes.addAll(Arrays.asList(DBqueries.getGenomeACs()));
+		
+		KeyAllocator cdsIds = new KeyAllocator("cds", "cdsid");
+		cdsIds.setPartitioner(new RangePartitioner("cds_ntseq"));
+		
+		//The rows of a genome are written through the same stream (one of several concurrent ones)
+		ParallelLoader genomeLoader = new ParallelLoader("genome", "ac", "nt_sequence", "oid", "seq_length", "nt_packed");
+		ParallelLoader chunkLoader = new ParallelLoader("genome_chunk", "genome_ac", "start", "seq", "seq_packed");
+		ParallelLoader cdsLoader = new ParallelLoader("cds", 
+				"cdsid", "gene", "locus_tag", "type", "product", "protein_id", "uniprot_ac", "prot_aa_seq", "genome_ac", "prot_seq_id", 
+				"prot_crc64", "prot_md5");
+		ParallelLoader ntseqLoader = new ParallelLoader("cds_ntseq", "start", "stop", "strand", "seq", "seq_packed", "genome_ac", "cdsid");
+		chunkLoader.setParent(genomeLoader);
+		cdsLoader.setParent(genomeLoader);
+		ntseqLoader.setParent(cdsLoader);
         
 		//Read the files of the list one by one
 		for (String filename : fileList) {
@@ -82,24 +122,42 @@ public class GenBank {
 			String fname = Paths.get(filename).getFileName().toString().split("\\.")[0];
 			g.setGenAc(fname);
 			
+			if (loadedGenomes.contains(fname)) {
+				OrganismStats.addLoadedGenome(fname);
+				scanner.close();
+				count++;
+				continue;
+			}
+			
 			boolean flagOrganism = false;
 			boolean flagOrgContd = false;
 			boolean flagStrain = false;
 			boolean flagCDS = false;
 			boolean flagProduct = false;
 			boolean flagTranslation = false;
+			boolean genomeAdded = false;
+			Long locusLength = null;
 			//boolean flagOrigin = false;
 			
 			String orgName="";
 			int lineNumber=0;
 			
+			//Sequences of prokaryotes and viruses are stored, in chunks while ORIGIN is read
+			boolean storeSequence = orgType.equalsIgnoreCase("P") || orgType.equalsIgnoreCase("V");
+			SequenceChunks chunks = storeSequence && SequenceChunks.isEnabled() 
+					? new SequenceChunks(fname, chunkLoader.getStream(fname)) : null;
+			
 			//Start reading file line by line until keyword ORIGIN is encountered
 			while (scanner.hasNextLine()) {
 				
 				lineNumber = lineNumber + 1;
 				String line = scanner.nextLine();
 
-				if (!flagOrganism && line.startsWith("                     /organism=") && line.endsWith("\"")) {
+				if (line.startsWith("LOCUS ")) {
+					locusLength = extract_length(line);
+				}
+				
+				else if (!flagOrganism && line.startsWith("                     /organism=") && line.endsWith("\"")) {
 					String species = extract_keyword(line);
 					orgName = orgName + species;
 					g.setOrganism(orgName);
@@ -238,22 +296,52 @@ public class GenBank {
 					flagTranslation = false;
 					//flagOrigin = true;
 					//System.out.println("Line number where ORIGIN occurs: "+lineNumber);
+					
+					//No chunk is written for a genome that will not be added for lack of its organism;
+					//otherwise its row is written before its chunks, with the length of the LOCUS line
+					if (chunks != null) {
+						addOrganismInfo(g);
+						if (!Registry.getOrganisms().containsKey(g.getOrganism()))
+							chunks = null;
+						else if (locusLength != null) {
+							g.setSeqLength(locusLength);
+							addGenomeInfo(g, genomeLoader.getStream(fname));
+							genomeAdded = true;
+						}
+					}
+					
+					while (chunks != null && scanner.hasNextLine()) {
+						line = scanner.nextLine();
+						if (line.startsWith("//"))
+							break;
+						chunks.addLine(line);
+					}
 					break;
 				}
 			}
 			scanner.close();
 			
-			if (orgType.equalsIgnoreCase("P") || orgType.equalsIgnoreCase("V"))
+			if (chunks != null) {
+			    g.setGenomeSeq( null );
+			    long length = chunks.close();
+			    if (genomeAdded && length != g.getSeqLength())
+			    	System.out.println("Genome " + fname + " has " + length + " nucleotides, not " + g.getSeqLength() + " as in its LOCUS line");
+			    g.setSeqLength( length );
+			}
+			else if (storeSequence && !SequenceChunks.isEnabled()) {
 			    g.setGenomeSeq( getWholeSequence(filename, lineNumber) );
+			    g.setSeqLength( g.getGenomeSeq() == null ? null : (long) g.getGenomeSeq().length() );
+			}
 			else
 			    g.setGenomeSeq( null );   		//for "E"
 			
 			
+			//In the lazy mode, CDS sequences are read from the stored genome sequence when needed
 			String directory = dirPath2;
-			List<String> seqBin = prepareSequenceBins(filename, lineNumber, directory);
+			List<String> seqBin = storeSequence && LAZY_CDS ? null : prepareSequenceBins(filename, lineNumber, directory);
 			
 			//Set nucleotide sequence
-			Iterator<CDS> it = g.getStackCDS().iterator();	
+			Iterator<CDS> it = seqBin == null ? Collections.emptyIterator() : g.getStackCDS().iterator();	
 			while (it.hasNext()) {
 
 				CDS cds = it.next();
@@ -267,12 +355,19 @@ public class GenBank {
 					nts.setSeq( seq );
 				}
 			}
-			add_info_db(g);
+			add_info_db(g, cdsIds, genomeAdded ? null : genomeLoader.getStream(g.getGenAc()), 
+					cdsLoader.getStream(g.getGenAc()), ntseqLoader.getStream(g.getGenAc()));
 			count++;	
 			
 			//long t2 = System.nanoTime();
 			//System.out.printf("#min to process %s %.2f\n", fname, (t2-t1)*1.6667e-11);
 		} 
+		
+		ntseqLoader.close();
+		cdsLoader.close();
+		chunkLoader.close();
+		genomeLoader.close();
+		SequenceDictionary.close();
 	
 	} 
 	
@@ -493,6 +588,16 @@ public class GenBank {
 		return tokens[1].replaceAll("\"", "");
 	}
 	
+	//Length of the sequence, e.g. "LOCUS       NC_000913            4641652 bp    DNA     circular ..."
+	public static Long extract_length(String line) {
+		
+		String[] tokens = line.trim().split("\\s+");
+		for (int i=1; i<tokens.length; i++)
+			if (tokens[i].equals("bp") && tokens[i-1].matches("\\d+"))
+				return Long.valueOf(tokens[i-1]);
+		return null;
+	}
+	
 	public static String extract_uniprotac(String line) {
 		
 		String[] tokens = line.split("GOA:");
@@ -514,61 +619,21 @@ public class GenBank {
 		else
 			type = "default";
 		
-		//cleaning
-		line = line.replaceAll("\\s{2,}", " ").trim();
-		line = line.replaceAll("CDS ", "");
-		line = line.replaceAll(">", "");
-		line = line.replaceAll("<", "");
-		line = line.replaceAll("complement\\(join\\(", "");
-		line = line.replaceAll("complement\\(", "");
-		line = line.replaceAll("join\\(", "");
-		line = line.replaceAll("\\)\\)", "");
-		line = line.replaceAll("\\)", "");  
+		//Segments are kept in the order of the location; a segment is on the complement strand
+		//if it is inside complement(...), or if the whole join is and it is not (INSDC rules)
+		boolean outer = type.equals("complement_join");
+		
+		line = cleanLocation(line);
 		
 		while (line.endsWith(",") ) {
-
-			String[] tokens = line.split(",");
-			for (String startend : tokens) { 
-				if (startend.contains("..")) {
-					int start = Integer.parseInt((startend.split("\\.."))[0]);
-					int stop = Integer.parseInt((startend.split("\\.."))[1]);
-					NtSeq nts = new NtSeq(start, stop);
-					cds.addNtSeq(nts);
-				}
-			}
-			line = scanner.nextLine();
-			
-			//cleaning
-			line = line.replaceAll("\\s{2,}", " ").trim();
-			line = line.replaceAll("CDS ", "");
-			line = line.replaceAll(">", "");
-			line = line.replaceAll("<", "");
-			line = line.replaceAll("complement\\(join\\(", "");
-			line = line.replaceAll("complement\\(", "");
-			line = line.replaceAll("join\\(", "");
-			line = line.replaceAll("\\)\\)", "");
-			line = line.replaceAll("\\)", "");
+			
+			addSegments(cds, line, outer);
+			line = cleanLocation(scanner.nextLine());
 			
 			lineNumber = lineNumber + 1;
 		}
 		
-		if (line.contains(",")) {
-			String[] tokens = line.split(",");
-			for (String startend : tokens) { 
-				if (startend.contains("..")) {
-					int start = Integer.parseInt((startend.split("\\.."))[0]);
-					int stop = Integer.parseInt((startend.split("\\.."))[1]);
-					NtSeq nts = new NtSeq(start, stop);
-					cds.addNtSeq(nts);
-				}
-			}
-	    }
-		else if (line.contains("..")){
-			int start = Integer.parseInt((line.split("\\.."))[0]);
-			int stop = Integer.parseInt((line.split("\\.."))[1]);
-			NtSeq nts = new NtSeq(start, stop);
-			cds.addNtSeq(nts);
-		}
+		addSegments(cds, line, outer);
 		cds.setType(type);  
 		g.addCDS(cds);
 		
@@ -576,136 +641,113 @@ public class GenBank {
 	}
 	
 	
-	public static void add_info_db(Genome g) {
+	//Location line without keywords, except "complement(" before a segment on the complement strand
+	private static String cleanLocation(String line) {
+		
+		line = line.replaceAll("\\s{2,}", " ").trim();
+		line = line.replaceAll("CDS ", "");
+		line = line.replaceAll(">", "");
+		line = line.replaceAll("<", "");
+		line = line.replaceAll("complement\\(join\\(", "");
+		line = line.replaceAll("join\\(", "");
+		line = line.replaceAll("\\)\\)", "");
+		line = line.replaceAll("\\)", "");
+		
+		return line;
+	}
+	
+	//Segments "start..stop" of a cleaned location line, separated by commas
+	private static void addSegments(CDS cds, String line, boolean outer) {
+		
+		for (String startend : line.split(",")) {
+			
+			boolean inner = startend.contains("complement(");
+			startend = startend.replaceAll("complement\\(", "").trim();
+			
+			if (startend.contains("..")) {
+				int start = Integer.parseInt((startend.split("\\.."))[0]);
+				int stop = Integer.parseInt((startend.split("\\.."))[1]);
+				cds.addNtSeq(new NtSeq(start, stop, outer != inner ? "-" : "+"));
+			}
+		}
+	}
+	
+	//genomeLoader is null when the row of the genome was written before its sequence chunks
+	public static void add_info_db(Genome g, KeyAllocator cdsIds, BulkLoader genomeLoader, BulkLoader cdsLoader, BulkLoader ntseqLoader) {
 		
 		addOrganismInfo(g);
 		
-		addGenomeInfo(g);
+		if (genomeLoader != null)
+			addGenomeInfo(g, genomeLoader);
 		
-		addCDS_NtSeqInfo(g);
+		addCDS_NtSeqInfo(g, cdsIds, cdsLoader, ntseqLoader);
 			
 	}
 	
-	//Insert into database
+	//Insert into database (organisms already in table "organism" are looked up in the registry)
 	public static void addOrganismInfo(Genome g) {
 		
-		String[] array = DBqueries.getOrgName();
+		if (Registry.getOrganisms().containsKey(g.getOrganism()))
+			return;
 		
 		String SQLs = "INSERT INTO organism(species) VALUES (?)";
 		
 		try (Connection conn = ConnectDB.connect();
-				PreparedStatement pstmt = conn.prepareStatement(SQLs)) {
-
-			if (!Utility.isIDofInterest(array, g.getOrganism())) {
-				
-				pstmt.setString(1, g.getOrganism());
-				pstmt.executeUpdate();
-				
-				conn.close();
+				PreparedStatement pstmt = conn.prepareStatement(SQLs, new String[] { "oid" })) {
+			
+			pstmt.setString(1, g.getOrganism());
+			pstmt.executeUpdate();
+			
+			try (ResultSet rs = pstmt.getGeneratedKeys()) {
+				rs.next();
+				Registry.addOrganism(g.getOrganism(), rs.getInt(1));
 			}
+			
 		} catch (SQLException ex) {
 			System.out.println(ex.getMessage());
 		}		
 		
 	}
 	
-	public static void addGenomeInfo(Genome g) {
+	public static void addGenomeInfo(Genome g, BulkLoader genomeLoader) {
 		
-		String SQL = "SELECT oid FROM organism WHERE species = ?"; 
+		Integer oid = Registry.getOrganisms().get(g.getOrganism());
 		
-		String SQLg = "INSERT INTO genome(ac, nt_sequence, oid) VALUES(?,?,?)";
+		if (oid == null) {
+			System.out.println("Organism \"" + g.getOrganism() + "\" of genome " + g.getGenAc() + " not found");
+			return;
+		}
 		
-		try (Connection conn = ConnectDB.connect();
-				PreparedStatement pstmt1 = conn.prepareStatement(SQL);
-				PreparedStatement pstmt2 = conn.prepareStatement(SQLg)) {
-			
-			pstmt1.setString(1, g.getOrganism());
-			
-			ResultSet rs = pstmt1.executeQuery();
-			rs.next();
-			int oid = rs.getInt(1);
-			
-			pstmt2.setString(1, g.getGenAc());
-			pstmt2.setString(2, g.getGenomeSeq());
-			pstmt2.setInt(3, oid);
-			
-			pstmt2.executeUpdate();
-			
-			conn.close();
-			
-		} catch (SQLException ex) {
-			System.out.println(ex.getMessage());
-		}	
+		genomeLoader.addRow(g.getGenAc(), NtCodec.text(g.getGenomeSeq()), oid, g.getSeqLength(), NtCodec.pack(g.getGenomeSeq()));
+		OrganismStats.addGenome(oid, g.getGenAc(), g.getSeqLength());
 			
 	}
 	
-	public static void addCDS_NtSeqInfo(Genome g) {
-		
-		String SQLc = "INSERT INTO cds(gene, locus_tag, type, product, protein_id, uniprot_ac, prot_aa_seq, genome_ac) " + 
-				"VALUES(?,?,?,?,?,?,?,?)";
+	public static void addCDS_NtSeqInfo(Genome g, KeyAllocator cdsIds, BulkLoader cdsLoader, BulkLoader ntseqLoader) {
 		
-		String SQLn = "INSERT INTO cds_ntseq(start, stop, seq, cdsid) " + 
-				"VALUES(?,?,?,?)";
-			
-		//write to table "cds"
+		//write to tables "cds" and "cds_ntseq"
 		
         Iterator<CDS> it = g.getStackCDS().iterator();
 		
 		while (it.hasNext()) {
 			CDS cds = it.next();
 			
-			try (Connection conn = ConnectDB.connect();
-					PreparedStatement pstmt3 = conn.prepareStatement(SQLc)) {
-			
-				pstmt3.setString(1, cds.getGene());
-				pstmt3.setString(2, cds.getLocusTag());
-				pstmt3.setString(3, cds.getType());
-				pstmt3.setString(4, cds.getProduct());
-				pstmt3.setString(5, cds.getProteinID());
-				pstmt3.setString(6, cds.getUniProtAC());
-				pstmt3.setString(7, cds.getProtSeq());
-				pstmt3.setString(8, g.getGenAc());
-				
-				pstmt3.executeUpdate();
-				
-				conn.close();
-					
-			} catch (SQLException ex) {
-				System.out.println(ex.getMessage());
-			}
+			int cdsid = cdsIds.nextId();
 			
-			//write to table "cds_ntseq"
+			cdsLoader.addRow(cdsid, cds.getGene(), cds.getLocusTag(), cds.getType(), cds.getProduct(), 
+					cds.getProteinID(), cds.getUniProtAC(), SequenceDictionary.text(cds.getProtSeq()), g.getGenAc(), 
+					SequenceDictionary.getId(cds.getProtSeq()), 
+					SequenceChecksum.crc64(cds.getProtSeq()), SequenceChecksum.md5(cds.getProtSeq()));
+			OrganismStats.addCds(g.getGenAc(), cds.getUniProtAC());
 			
 			Iterator<NtSeq> it2 = cds.getListNtSeq().iterator();
 			
 			while (it2.hasNext()) {
 				NtSeq nts = it2.next();
-				
-				try (Connection conn = ConnectDB.connect();
-						PreparedStatement pstmt4 = conn.prepareStatement(SQLn)) {
-					
-					String SQLm = "SELECT MAX(cdsid) FROM cds";
-					
-					Statement stmt = conn.createStatement();
-					ResultSet rs = stmt.executeQuery(SQLm);
-					rs.next();
-					int cdsid = rs.getInt(1);
-			
-					pstmt4.setInt(1, nts.getStart());
-					pstmt4.setInt(2, nts.getStop());
-					pstmt4.setString(3, nts.getSeq());
-					pstmt4.setInt(4, cdsid);
-					
-					pstmt4.executeUpdate();
-					
-					conn.close();
-					
-				} catch (SQLException ex) {
-					System.out.println(ex.getMessage());
-				}
+				ntseqLoader.addRow(nts.getStart(), nts.getStop(), nts.getStrand(), NtCodec.text(nts.getSeq()), NtCodec.pack(nts.getSeq()), g.getGenAc(), cdsid);
 			}
 		}	
 	
 	}
 	
-}
\ No newline at end of file
+}
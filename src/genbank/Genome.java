@@ -15,6 +15,7 @@ public class Genome {
 	private String gen_ac;
 	private String organism;
 	private String genome_seq;
+	private Long seq_length;
 	private Stack<CDS> stackCDS;
 
 	public Genome() {
@@ -48,6 +49,14 @@ public class Genome {
 		this.genome_seq = genome_seq;
 	}
 
+	public Long getSeqLength() {
+		return seq_length;
+	}
+	
+	public void setSeqLength(Long seq_length) {
+		this.seq_length = seq_length;
+	}
+
 	public Stack<CDS> getStackCDS() {
 		return stackCDS;
 	}
@@ -15,12 +15,18 @@ public class NtSeq {
 	//Attributes
 	private int start;					//start position on the genome
 	private int stop;					//end position on the genome
+	private String strand;				//"+" (forward) or "-" (complement)
 	private String seq;					//nucleotide sequence
 	
-	//Constructor
+	//Constructors
 	public NtSeq(int start, int stop) {
+		this(start, stop, "+");
+	}
+	
+	public NtSeq(int start, int stop, String strand) {
 		this.start = start;
 		this.stop = stop;
+		this.strand = strand;
 		this.seq = null;
 	}
 	
@@ -49,4 +55,12 @@ public class NtSeq {
 		this.stop = stop;
 	}
 	
+	public String getStrand() {
+		return strand;
+	}
+	
+	public void setStrand(String strand) {
+		this.strand = strand;
+	}
+	
 }
@@ -0,0 +1,84 @@
+package genbank;
+
+import util.BulkLoader;
+import util.Config;
+import util.NtCodec;
+
+/**
+ * This class splits the nucleotide sequence of a genome into chunks of relation
+ * "genome_chunk" while the ORIGIN section of its GenBank file is read, so that the whole
+ * sequence is never held as one string, neither by TAGOPSIN nor as one large TOASTed value
+ * in PostgreSQL. A chunk is keyed by the genome AC and the position of its first nucleotide
+ * (from 1, as in GenBank), so that a region is read from the few chunks it overlaps (see
+ * method getGenomeRegion() of class Repository.java).
+ *
+ * Chunks have tagopsin.genome.chunkSize nucleotides (the last one of a genome fewer); a size
+ * of 1900 keeps a row below the TOAST threshold of about 2 kB, so that chunks are stored
+ * inline and read without being decompressed. The default of 0 keeps the whole sequence in
+ * column "nt_sequence" of relation "genome", as before chunks were introduced.
+ *
+ * Chunks are only written for a genome whose organism is in relation "organism" (see class
+ * GenBank.java), so that no chunk is left without its row of relation "genome".
+ *
+ * @since	2026-10-17
+ * @version	1.0
+ *
+ */
+
+public class SequenceChunks {
+
+	private static final int CHUNK_SIZE = Math.max(0, Config.getInt("tagopsin.genome.chunkSize", 0));
+
+	private final String genomeAc;
+	private final BulkLoader loader;
+	private final StringBuilder chunk = new StringBuilder(CHUNK_SIZE);
+	private long length = 0;
+
+	public SequenceChunks(String genomeAc, BulkLoader loader) {
+		this.genomeAc = genomeAc;
+		this.loader = loader;
+	}
+
+	public static boolean isEnabled() {
+		return CHUNK_SIZE > 0;
+	}
+
+	//Line of the ORIGIN section, e.g. "        1 atgaccgatc ttcgcgaccg ..."
+	public void addLine(String line) {
+
+		for (int i=0; i<line.length(); i++) {
+
+			char c = line.charAt(i);
+
+			if (!Character.isLetter(c))
+				continue;
+
+			chunk.append(c);
+			if (chunk.length() == CHUNK_SIZE)
+				flush();
+		}
+	}
+
+	/**
+	 * Writes the last chunk.
+	 *
+	 * @return length of the sequence
+	 */
+	public long close() {
+
+		flush();
+		return length;
+	}
+
+	private void flush() {
+
+		if (chunk.length() == 0)
+			return;
+
+		String seq = chunk.toString();
+		loader.addRow(genomeAc, length + 1, NtCodec.text(seq), NtCodec.pack(seq));
+		length += chunk.length();
+		chunk.setLength(0);
+	}
+
+}
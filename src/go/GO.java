@@ -1,15 +1,12 @@
 package go;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Scanner;
 import java.util.Set;
 
-import util.ConnectDB;
+import util.BulkLoader;
 
 /**
  * This class parses a file in the OBO format, extracts data relating to individual GO terms 
@@ -73,12 +70,17 @@ public class GO {
 		
 		Set<String> goids = map.keySet();
 		
+		BulkLoader go = new BulkLoader("go", "go_id", "name", "definition", "namespace");
+		BulkLoader go_parent = new BulkLoader("go_parent", "go_id", "go_id_parent");
+		go.setUniqueKey("go_id");
+		go_parent.setUniqueKey("go_id", "go_id_parent");
+		
 		//Insert data into table "go_parent"
 		for (String id : goids) {
 				
 			for (String is_a : map.get(id).getIs_a())
 			
-				insert_go_parent(id,is_a);
+				go_parent.addRow(id, is_a);
 				
 			if (!map.get(id).getAlt_id().isEmpty()) {
 			
@@ -86,7 +88,7 @@ public class GO {
 						
 					for (String is_a : map.get(id).getIs_a())
 						
-						insert_go_parent(alt_id,is_a);
+						go_parent.addRow(alt_id, is_a);
 				}
 			}
 			
@@ -95,16 +97,19 @@ public class GO {
 		//Insert data into table "go"
 		for (String id : goids) {
 			
-			insert_go(id, map.get(id).getName(), map.get(id).getDefinition(), map.get(id).getNamespace());
+			go.addRow(id, map.get(id).getName(), map.get(id).getDefinition(), map.get(id).getNamespace());
 			
 			if (!map.get(id).getAlt_id().isEmpty()) {
 				
 				for (String alt_id : map.get(id).getAlt_id()) {
 						
-					insert_go(alt_id, map.get(id).getName(), map.get(id).getDefinition(), map.get(id).getNamespace());
+					go.addRow(alt_id, map.get(id).getName(), map.get(id).getDefinition(), map.get(id).getNamespace());
 				}
 			}
 		}
+		
+		go_parent.close();
+		go.close();
 
 	}
 	
@@ -134,43 +139,5 @@ public class GO {
 		}
 		return defFinal;
 	}
-	
-	public static void insert_go(String id,String name,String def,String namespace) {
-		
-		String SQL = "INSERT INTO go VALUES(?,?,?,?)";
-		
-		try (Connection conn = ConnectDB.connect();
-				PreparedStatement pstmt = conn.prepareStatement(SQL)) {
-			pstmt.setString(1, id);
-			pstmt.setString(2, name);
-			pstmt.setString(3, def);
-			pstmt.setString(4, namespace);
-			
-			pstmt.executeUpdate();
-			conn.close();
-
-		} catch (SQLException ex) {
-			System.out.println(ex.getMessage());
-		}
-		
-	}
-	
-	public static void insert_go_parent(String id,String id_parent) {
-		
-		String SQL = "INSERT INTO go_parent VALUES(?,?)";
-		
-		try (Connection conn = ConnectDB.connect();
-				PreparedStatement pstmt = conn.prepareStatement(SQL)) {
-			pstmt.setString(1, id);
-			pstmt.setString(2, id_parent);
-			
-			pstmt.executeUpdate();
-			conn.close();
-
-		} catch (SQLException ex) {
-			System.out.println(ex.getMessage());
-		}
-		
-	}
 
 }
@@ -2,23 +2,21 @@ package mapping;
 
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Scanner;
 import java.util.Set;
 
-import util.ConnectDB;
 import util.DBqueries;
+import util.OrganismStats;
+import util.StagedUpdate;
 import util.Utility;
 
 /**
  * This class parses a DAT file to map RefSeq protein IDs onto UniProt ACs for a 
  * given RefSeq genome AC (prokaryotes, viruses) or a given locus name (eukaryotes), 
- * and updates PostgreSQL accordingly. 
+ * and updates PostgreSQL accordingly. Matched tuples are staged and applied to the "cds" 
+ * relation in one UPDATE at the end of the file.
  * 
  * @author 	Eshan Bundhoo and Anisah W. Ghoorah, University of Mauritius
  * @since	2020-06-18
@@ -30,8 +28,6 @@ public class GenBank2UniProt {
 
 	public static void parseFile(String filename, String orgType, String orgName) throws FileNotFoundException {
 		
-		create_index_cds();
-		
 		Scanner scanner = new Scanner(new FileInputStream(filename));
 		
 		Map<String, HashSet<String>> map = DBqueries.getCdsProt(orgType);
@@ -40,6 +36,9 @@ public class GenBank2UniProt {
 		
 		GBMapping gbm = null;
 		
+		StagedUpdate stage = new StagedUpdate("stage_cds_uniprot", 
+				"uniprot_ac varchar", "protein_id varchar", "genome_ac varchar", "locus_tag varchar");
+		
 		//Read the default file "idmapping.dat" or the by_organism idmapping file found on UniProt FTP server
 		while (scanner.hasNextLine()) {
 			
@@ -72,7 +71,7 @@ public class GenBank2UniProt {
 							gbm = new GBMapping();
 							gbm.setRefseq(refseq);
 							gbm.setUniprotAc(uniprot);
-							db_update_human(gbm.getUniprotAc(), gbm.getRefseq());
+							stage.addRow(gbm.getUniprotAc(), gbm.getRefseq(), null, null);
 						}
 					}
 					else {
@@ -83,7 +82,7 @@ public class GenBank2UniProt {
 							if (set.contains(refseq)) {
 								gbm.setRefseq(refseq);	
 								gbm.setUniprotAc(uniprot);
-								db_update_euk(gbm.getUniprotAc(), gbm.getRefseq(), gbm.getLocusName());
+								stage.addRow(gbm.getUniprotAc(), gbm.getRefseq(), null, gbm.getLocusName());
 							}
 						}
 					}
@@ -106,7 +105,7 @@ public class GenBank2UniProt {
 					
 					if (set.contains(genome_ac)) {
 						gbm.setGenomeAc(genome_ac);
-						db_update_prok(gbm.getUniprotAc(), gbm.getRefseq(), gbm.getGenomeAc());
+						stage.addRow(gbm.getUniprotAc(), gbm.getRefseq(), gbm.getGenomeAc(), null);
 					}
 				}
 			}
@@ -114,100 +113,27 @@ public class GenBank2UniProt {
 				gbm = null;
 		}
 		scanner.close();
-	}
-	
-	//Create index on "cds" table
-	public static void create_index_cds() {
 		
-		String SQL = "CREATE INDEX prot_id_idx ON cds (protein_id)";
-		
-		try {
-			Connection conn = ConnectDB.connect();
-			Statement stmt = conn.createStatement();
-			stmt.executeUpdate(SQL);
-			conn.close();
-		} catch (SQLException ex) {
-			System.out.println(ex.getMessage());
-		}
-		
-		SQL = "CREATE INDEX gen_ac_idx ON cds (genome_ac)";
-		
-		try {
-			Connection conn = ConnectDB.connect();
-			Statement stmt = conn.createStatement();
-			stmt.executeUpdate(SQL);
-			conn.close();
-		} catch (SQLException ex) {
-			System.out.println(ex.getMessage());
-		}
+		//Update PostgreSQL; the mapped CDS are counted in the organism statistics
+		String[] keys = !orgType.equalsIgnoreCase("E") ? KEYS_PROK 
+				: orgName.equalsIgnoreCase("Homo sapiens") ? KEYS_HUMAN : KEYS_EUK;
 		
+		stage.apply("cds", keys, UNIPROT_AC, false, ONLY_UNMAPPED, MAPPED_CDS, 
+				row -> OrganismStats.mapCds(row[0], row[1]));
 	}
 	
-	//Update PostgreSQL for prokaryotes and viruses
-	public static void db_update_prok(String uniprot_ac, String refseq, String genome_ac) {
-		
-		String SQLp = "UPDATE cds SET uniprot_ac = ? "
-				+ "WHERE protein_id = ? "
-				+ "AND genome_ac = ? "
-				+ "AND uniprot_ac IS NULL";
-		
-		try (Connection conn = ConnectDB.connect();
-				PreparedStatement pstmt = conn.prepareStatement(SQLp)) {
-			pstmt.setString(1, uniprot_ac);
-			pstmt.setString(2, refseq);
-			pstmt.setString(3, genome_ac);
-			
-			pstmt.executeUpdate();
-			
-			conn.close();	
-			
-		} catch (SQLException ex) {
-			System.out.println(ex.getMessage());
-		}
-	}
+	//Update of cds; the first staged tuple wins, as only CDS without a UniProt AC are updated
+	private static final String[] UNIPROT_AC = { "uniprot_ac" };
+	private static final String ONLY_UNMAPPED = "cds.uniprot_ac IS NULL";
+	private static final String[] MAPPED_CDS = { "genome_ac", "uniprot_ac" };
 	
-	//Update PostgreSQL for eukaryotes
-	public static void db_update_euk(String uniprot_ac, String refseq, String locus_tag) {
+	//keys for prokaryotes and viruses
+	private static final String[] KEYS_PROK = { "protein_id", "genome_ac" };
 	
-		String SQLe = "UPDATE cds SET uniprot_ac = ? "
-				+ "WHERE protein_id = ? "
-				+ "AND locus_tag = ? "
-				+ "AND uniprot_ac IS NULL";
-			
-		try (Connection conn = ConnectDB.connect();
-				PreparedStatement pstmt = conn.prepareStatement(SQLe)) {
-			pstmt.setString(1, uniprot_ac);
-			pstmt.setString(2, refseq);
-			pstmt.setString(3, locus_tag);
-			
-			pstmt.executeUpdate();
-			
-			conn.close();	
-			
-		} catch (SQLException ex) {
-			System.out.println(ex.getMessage());
-		}
-	}
+	//for eukaryotes
+	private static final String[] KEYS_EUK = { "protein_id", "locus_tag" };
 	
-	//Update PostgreSQL for human (eukaryote)
-	public static void db_update_human(String uniprot_ac, String refseq) {
-		
-		String SQL = "UPDATE cds SET uniprot_ac = ? "
-				+ "WHERE protein_id = ? "
-				+ "AND uniprot_ac IS NULL";
-			
-		try (Connection conn = ConnectDB.connect();
-				PreparedStatement pstmt = conn.prepareStatement(SQL)) {
-			pstmt.setString(1, uniprot_ac);
-			pstmt.setString(2, refseq);
-			
-			pstmt.executeUpdate();
-			
-			conn.close();	
-			
-		} catch (SQLException ex) {
-			System.out.println(ex.getMessage());
-		}
-	}
+	//for human (eukaryote)
+	private static final String[] KEYS_HUMAN = { "protein_id" };
 
 }
@@ -0,0 +1,140 @@
+package mapping;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import uniprot.ReadFastaProtein;
+import util.Config;
+import util.DBqueries;
+import util.OrganismStats;
+import util.SequenceChecksum;
+import util.StagedUpdate;
+
+/**
+ * This class maps CDS left without a UniProt AC by the idmapping file onto the Swiss-Prot
+ * entry of identical sequence from the same organism, when tagopsin.mapping.identicalSequence
+ * is set. Conserved proteins (e.g. histones, ubiquitin) are identical across species, so an
+ * entry is only considered for the CDS of genomes whose organism has the taxonomy ID of the
+ * entry (OX= in the FASTA header), and a sequence shared by several entries of a taxonomy ID
+ * is left unmapped rather than mapped onto one of them.
+ *
+ * The checksums of the retained entries (see class SequenceChecksum.java) are staged once per
+ * genome of their taxonomy ID, and applied to the "cds" relation in one UPDATE joining on
+ * columns genome_ac, prot_crc64 and prot_md5, so that sequences are never compared.
+ *
+ * It runs after class GenBank2UniProt.java and before class Protein.java, so that the
+ * entries mapped here are loaded with the others.
+ *
+ * @since	2026-10-17
+ * @version	1.0
+ *
+ */
+
+public class Sequence2UniProt {
+
+	private static final boolean enabled = Config.getBoolean("tagopsin.mapping.identicalSequence", false);
+
+	private static final Pattern TAXID = Pattern.compile(" OX=(\\d+)");
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	public static int parseFile(String file) throws IOException {
+
+		Map<Integer, List<String>> genomes = DBqueries.getGenomesByTaxID();
+
+		//UniProt AC of each (taxonomy ID, CRC64, MD5), null if several entries share it
+		Map<Entry, String> entries = new HashMap<>();
+
+		BufferedReader in = new BufferedReader(new FileReader(file));
+		StringBuilder buffer = new StringBuilder();
+		String ac = null;
+		Integer taxid = null;
+
+		for (String line = in.readLine(); line != null; line = in.readLine()) {
+
+			if (line.length() > 0 && line.charAt(0) == '>') {
+				addEntry(entries, ac, taxid, buffer);
+				Matcher m = TAXID.matcher(line);
+				taxid = m.find() ? Integer.valueOf(m.group(1)) : null;
+				ac = taxid != null && genomes.containsKey(taxid) ? ReadFastaProtein.get_ac(line) : null;
+				buffer.setLength(0);
+			}
+			else if (ac != null)
+				buffer.append(line.trim());
+		}
+		addEntry(entries, ac, taxid, buffer);
+		in.close();
+
+		StagedUpdate stage = new StagedUpdate("stage_cds_sequence",
+				"uniprot_ac varchar", "genome_ac varchar", "prot_crc64 bigint", "prot_md5 uuid");
+
+		for (Map.Entry<Entry, String> e : entries.entrySet()) {
+
+			if (e.getValue() == null)
+				continue;
+
+			Entry k = e.getKey();
+			for (String genomeAc : genomes.get(k.taxid))
+				stage.addRow(e.getValue(), genomeAc, k.crc64, k.md5);
+		}
+
+		//Update PostgreSQL; the mapped CDS are counted in the organism statistics
+		return stage.apply("cds", KEYS, UNIPROT_AC, false, ONLY_UNMAPPED, MAPPED_CDS,
+				row -> OrganismStats.mapCds(row[0], row[1]));
+	}
+
+	private static void addEntry(Map<Entry, String> entries, String ac, Integer taxid, StringBuilder buffer) {
+
+		if (ac == null || buffer.length() == 0)
+			return;
+
+		String seq = buffer.toString();
+		Entry key = new Entry(taxid, SequenceChecksum.crc64(seq), SequenceChecksum.md5(seq));
+
+		//an identical sequence in another entry of the organism makes the mapping ambiguous
+		entries.put(key, entries.containsKey(key) ? null : ac);
+	}
+
+	//Update of cds, keyed by genome so that only CDS of the organism of an entry are mapped
+	private static final String[] KEYS = { "genome_ac", "prot_crc64", "prot_md5" };
+	private static final String[] UNIPROT_AC = { "uniprot_ac" };
+	private static final String ONLY_UNMAPPED = "cds.uniprot_ac IS NULL";
+	private static final String[] MAPPED_CDS = { "genome_ac", "uniprot_ac" };
+
+	//Taxonomy ID and checksums of a sequence
+	private static class Entry {
+
+		private final int taxid;
+		private final long crc64;
+		private final UUID md5;
+
+		Entry(int taxid, long crc64, UUID md5) {
+			this.taxid = taxid;
+			this.crc64 = crc64;
+			this.md5 = md5;
+		}
+
+		public boolean equals(Object o) {
+
+			if (!(o instanceof Entry))
+				return false;
+
+			Entry e = (Entry) o;
+			return taxid == e.taxid && crc64 == e.crc64 && md5.equals(e.md5);
+		}
+
+		public int hashCode() {
+			return Long.hashCode(crc64) * 31 + taxid;
+		}
+	}
+
+}
@@ -1,16 +1,14 @@
 package mapping;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
 import java.util.Scanner;
+import java.util.Set;
 
 import uniprot.Protein;
 import uniprot.UniProt;
-import util.ConnectDB;
-import util.DBqueries;
-import util.Utility;
+import util.BulkLoader;
+import util.OrganismStats;
+import util.Registry;
 
 /**
  * This class parses a DAT file to map UniProt ACs onto GO IDs, and updates 
@@ -29,7 +27,10 @@ public class UniProt2GO {
 		Scanner scanner = new Scanner(new FileInputStream(filename));
 		UniProt u = new UniProt();
 		
-		String[] array = DBqueries.getUniProtACs();
+		Set<String> uniprotACs = Registry.getUniProtACs();
+		
+		BulkLoader loader = new BulkLoader("protein2go", "uniprot_ac", "go_id");
+		loader.setUniqueKey("uniprot_ac", "go_id");
 
 		//Start reading the file uniprot_sprot.dat found on UniProt FTP server
 		while (scanner.hasNextLine()) {
@@ -46,32 +47,21 @@ public class UniProt2GO {
 			}
 			
 			if (line.startsWith("//")) {
-				if (Utility.isIDofInterest(array, u.getAc())) {
+				if (uniprotACs.contains(u.getAc())) {
 					
+					//Insert into database
 					for (String goid : u.getGoId()) {
 						
-						//Insert into database
-						String SQL = "INSERT INTO protein2go(uniprot_ac, go_id) VALUES(?,?)";
-						
-						try (Connection conn = ConnectDB.connect();
-								PreparedStatement pstmt = conn.prepareStatement(SQL)) {
-							pstmt.setString(1, u.getAc());
-							pstmt.setString(2, goid);
-							
-							pstmt.executeUpdate();
-							conn.close();
-
-						} catch (SQLException ex) {
-							System.out.println(ex.getMessage());
-						}
-						
-					}
-						
+						loader.addRow(u.getAc(), goid);
+						OrganismStats.addGoAnnotation(u.getAc());
+					}	
 				}
 				u = new UniProt();
 			}
 		}
 		scanner.close();
+		
+		loader.close();
 
 	}
 	
@@ -2,14 +2,12 @@ package mapping;
 
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
 import java.util.Scanner;
+import java.util.Set;
 
-import util.ConnectDB;
-import util.DBqueries;
-import util.Utility;
+import util.OrganismStats;
+import util.ParallelLoader;
+import util.Registry;
 
 /**
  * This class parses a TSV file (pdb_chain_uniprot.tsv) from EBI SIFTS to map UniProt ACs 
@@ -27,7 +25,13 @@ public class UniProt2PDB {
 		
 		Scanner scanner = new Scanner(new FileInputStream(filename));
 		
-		String[] array = DBqueries.getUniProtACs();
+		Set<String> uniprotACs = Registry.getUniProtACs();
+		
+		//Rows are keyed on all their columns: in the incremental mode, mappings loaded by an earlier
+		//run are skipped by the database (see class BulkLoader.java), and new ones added
+		ParallelLoader loader = new ParallelLoader("protein2pdb", 
+				"uniprot_ac", "sp_start", "sp_stop", "pdb_id", "chain", "pdb_start", "pdb_stop");
+		loader.setUniqueKey("uniprot_ac", "sp_start", "sp_stop", "pdb_id", "chain", "pdb_start", "pdb_stop");
 		
 		//Start reading the file pdb_chain_uniprot.tsv found on SIFTS website
 		while (scanner.hasNextLine()) {
@@ -41,7 +45,7 @@ public class UniProt2PDB {
 				
 			String swissprot = tokens[2];
 			
-			if (Utility.isIDofInterest(array, swissprot)) {
+			if (uniprotACs.contains(swissprot)) {
 				
 				String pdbid = tokens[0];
 				String chain = tokens[1]; 
@@ -51,30 +55,14 @@ public class UniProt2PDB {
 				int spstop = Integer.parseInt(tokens[8]);
 				
 				//Insert into database
-				String SQL = "INSERT INTO protein2pdb(uniprot_ac, sp_start, sp_stop, pdb_id, chain, pdb_start, pdb_stop) " + 
-						"VALUES (?,?,?,?,?,?,?)";
-				
-				try (Connection conn = ConnectDB.connect();
-						PreparedStatement pstmt = conn.prepareStatement(SQL)) {
-					pstmt.setString(1, swissprot);
-					pstmt.setInt(2, spstart);
-					pstmt.setInt(3, spstop);
-					pstmt.setString(4, pdbid);
-					pstmt.setString(5, chain);
-					pstmt.setString(6, pdbstart);
-					pstmt.setString(7, pdbstop);
-					
-					pstmt.executeUpdate();
-					conn.close();	
-					
-				} catch (SQLException ex) {
-					System.out.println(ex.getMessage());
-				}
-				
+				loader.addRow(swissprot, swissprot, spstart, spstop, pdbid, chain, pdbstart, pdbstop);
+				OrganismStats.addPdbMapping(swissprot);
 			}
 			
 		}
 		scanner.close();
+		
+		loader.close();
 
 	}
 
@@ -2,9 +2,6 @@ package pdb;
 
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -13,12 +10,14 @@ import java.util.Map.Entry;
 import java.util.Scanner;
 import java.util.Set;
 
-import util.ConnectDB;
+import util.BulkLoader;
 import util.DBqueries;
+import util.Registry;
 
 /**
  * This class reads a TSV file (pdb_chain_taxonomy.tsv) from EBI SIFTS to map 
- * PDB IDs onto NCBI taxonomy IDs, and updates PostgreSQL accordingly.
+ * PDB IDs onto NCBI taxonomy IDs, and updates PostgreSQL accordingly. Each PDB chain is 
+ * inserted together with its taxonomy ID, so no separate update is needed.
  *  
  * @author 	Eshan Bundhoo and Anisah W. Ghoorah, University of Mauritius
  * @since	2019-02-19
@@ -38,6 +37,9 @@ public class PDB_Chain_Taxa {
 		
 		Iterator<Entry<String, HashSet<String>>> it = entrySet.iterator();
 		
+		BulkLoader loader = new BulkLoader("pdb_chain", "pdb_id", "chain", "taxonomy_id");
+		loader.setUniqueKey("pdb_id", "chain");
+		
 		while (it.hasNext()) {
 			
 			Entry<String, HashSet<String>> entry = it.next();
@@ -46,43 +48,16 @@ public class PDB_Chain_Taxa {
 			
 			for (String chain : chainlabels) {
 				
-				//Update database
-				String SQL = "INSERT INTO pdb_chain(pdb_id, chain) VALUES (?,?)";
-				
-				String SQLt = "UPDATE pdb_chain SET taxonomy_id = ? "
-						+ "WHERE pdb_id = ? AND chain = ?";
-				
-				try (Connection conn = ConnectDB.connect();
-						PreparedStatement pstmt1 = conn.prepareStatement(SQL);
-						PreparedStatement pstmt2 = conn.prepareStatement(SQLt)) {
-					
-					pstmt1.setString(1, pdbcode);
-					pstmt1.setString(2, chain);
-					
-					pstmt1.executeUpdate();
-				
-					String pdbchain = pdbcode + "_" + chain;
-					
-					if (mapFile.containsKey(pdbchain)) {
-						
-						Integer taxaid = mapFile.get(pdbchain);
-						
-						pstmt2.setInt(1, taxaid);
-						pstmt2.setString(2, pdbcode);
-						pstmt2.setString(3, chain);
-						
-						pstmt2.executeUpdate();
-						conn.close();	
-							
-					}
-					
-				} catch (SQLException ex) {
-					System.out.println(ex.getMessage());
-				}
+				//Insert into database
+				String pdbchain = pdbcode + "_" + chain;
 				
+				loader.addRow(pdbcode, chain, mapFile.get(pdbchain));
+				Registry.addPDBID(pdbcode);
 			}
 			
-		}		
+		}
+		
+		loader.close();
 
 	}
 	
@@ -2,14 +2,11 @@ package pdb;
 
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
 import java.util.Scanner;
+import java.util.Set;
 
-import util.ConnectDB;
-import util.DBqueries;
-import util.Utility;
+import util.BulkLoader;
+import util.Registry;
 
 /**
  * This class reads the file entries.idx found on the RCSB PDB FTP server and retrieves 
@@ -28,7 +25,10 @@ public class PDB_Entry {
 		
 		Scanner scanner = new Scanner(new FileInputStream(filename));
 		
-		String[] array = DBqueries.getPDBIDs();
+		Set<String> pdbIDs = Registry.getPDBIDs();
+		
+		BulkLoader loader = new BulkLoader("pdb", "pdb_id", "name", "method", "resolution");
+		loader.setUniqueKey("pdb_id");
 		
 		while (scanner.hasNextLine()) {
 			
@@ -40,33 +40,21 @@ public class PDB_Entry {
 			String[] tokens = line.split("\t");
 			String pdbid = tokens[0];
 			
-			if (Utility.isIDofInterest(array, pdbid.toLowerCase())) {
+			if (pdbIDs.contains(pdbid.toLowerCase())) {
 				
 				String name = tokens[3];
 				String resolution = tokens[6];
 				String method = tokens[7];
 				
 				//Insert into database
-				String SQL = "INSERT INTO pdb VALUES (?,?,?,?)";
-				
-				try (Connection conn = ConnectDB.connect();
-						PreparedStatement pstmt = conn.prepareStatement(SQL)) {
-					pstmt.setString(1, pdbid.toLowerCase());
-					pstmt.setString(2, name);
-					pstmt.setString(3, method);
-					pstmt.setString(4, resolution);
-					
-					pstmt.executeUpdate();
-					conn.close();	
-					
-				} catch (SQLException ex) {
-					System.out.println(ex.getMessage());
-				}
+				loader.addRow(pdbid.toLowerCase(), name, method, resolution);
 								
 			}
 			
 		}
 		scanner.close();
+		
+		loader.close();
 
 	}
 
@@ -3,15 +3,14 @@ package pdb;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
-import util.ConnectDB;
-import util.DBqueries;
-import util.Utility;
+import util.Registry;
+import util.SequenceChecksum;
+import util.SequenceDictionary;
+import util.StagedUpdate;
 
 /**
  * This class reads a file in FASTA format to extract amino acid sequences for PDB entries 
@@ -30,7 +29,11 @@ public class PDB_SeqRes {
 		List<String> desc = new ArrayList<>();
 		List<String> seq = new ArrayList<>();
 		
-		String[] array = DBqueries.getPDBIDs();
+		Set<String> pdbIDs = Registry.getPDBIDs();
+		
+		StagedUpdate stage = new StagedUpdate("stage_pdb_seqres", 
+				"pdb_id varchar", "chain varchar", "aa_sequence varchar", "seq_id integer", 
+				"seq_crc64 bigint", "seq_md5 uuid");
 			
         BufferedReader in = new BufferedReader(new FileReader(file));
         StringBuffer buffer = new StringBuffer();
@@ -63,29 +66,18 @@ public class PDB_SeqRes {
 			String pdbid = get_pdbid(desc.get(i));
 			String chain = get_chain(desc.get(i));
 			
-			if (Utility.isIDofInterest(array, pdbid)) {
-				
-				String SQL = "UPDATE pdb_chain " + 
-						"SET aa_sequence = ? " +
-						"WHERE pdb_id = ? AND chain = ?";
-				
-				try (Connection conn = ConnectDB.connect();
-						PreparedStatement pstmt = conn.prepareStatement(SQL)) {
-					pstmt.setString(1, seq.get(i));
-					pstmt.setString(2, pdbid);
-					pstmt.setString(3, chain);
-					
-					pstmt.executeUpdate();
-					conn.close();
-						
-				} catch (SQLException ex) {
-					System.out.println(ex.getMessage());
-				}
+			if (pdbIDs.contains(pdbid))
 				
-			}
+				stage.addRow(pdbid, chain, SequenceDictionary.text(seq.get(i)), SequenceDictionary.getId(seq.get(i)), 
+						SequenceChecksum.crc64(seq.get(i)), SequenceChecksum.md5(seq.get(i)));
 			
 		}
 		in.close();
+		
+		SequenceDictionary.close();
+		
+		//Update PostgreSQL, keeping the last entry read for a given PDB chain
+		stage.apply("pdb_chain", new String[] { "pdb_id", "chain" }, new String[] { "aa_sequence", "seq_id", "seq_crc64", "seq_md5" }, true, null);
     }
 	
 	public static String get_pdbid(String header) {
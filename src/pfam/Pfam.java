@@ -1,14 +1,12 @@
 package pfam;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
 import java.util.Scanner;
+import java.util.Set;
 
-import util.ConnectDB;
-import util.DBqueries;
-import util.Utility;
+import util.BulkLoader;
+import util.OrganismStats;
+import util.Registry;
 
 /**
  * This class parses a file in the Stockholm format, retrieves IDs, ACs, descriptions 
@@ -26,7 +24,13 @@ public class Pfam {
 		
 		PfamEntry pf = new PfamEntry();
 		
-		String[] array = DBqueries.getUniProtACs();
+		Set<String> uniprotACs = Registry.getUniProtACs();
+		
+		BulkLoader prot2pfam = new BulkLoader("protein2pfam", "uniprot_ac", "seq_start", "seq_stop", "pfam_ac");
+		BulkLoader pfam = new BulkLoader("pfam", "pfam_ac", "pfam_id", "description");
+		prot2pfam.setUniqueKey("uniprot_ac", "seq_start", "seq_stop");
+		pfam.setUniqueKey("pfam_ac");
+		prot2pfam.setParent(pfam);
 		
 		Scanner scanner = new Scanner(new FileInputStream(filename));
 		
@@ -53,19 +57,25 @@ public class Pfam {
 			
 			else if (line.startsWith("//")) {
 				
-				//Insert into database
-				for (UniProtDomain u : pf.getListUniProt()) {
+				//Insert into database: the family, if it has any domain of interest, before its domains
+				boolean hasDomainOfInterest = false;
+				
+				for (UniProtDomain u : pf.getListUniProt())
+					hasDomainOfInterest |= uniprotACs.contains(u.getUniProtAc());
+				
+				if (hasDomainOfInterest) {
 					
-					if (Utility.isIDofInterest(array, u.getUniProtAc()))		
-						
-						insert_prot2pfam(u.getUniProtAc(), u.getStart(), u.getStop(), pf.getAc());
+					pfam.addRow(pf.getAc(), pf.getId(), pf.getDescription());
 				}
 				
-				String[] arrayPfAcs = DBqueries.getPfamACs();
-				
-				if (Utility.isIDofInterest(arrayPfAcs, pf.getAc()))
+				for (UniProtDomain u : pf.getListUniProt()) {
 					
-					insert_pfam(pf.getAc(), pf.getId(), pf.getDescription());
+					if (uniprotACs.contains(u.getUniProtAc())) {
+						
+						prot2pfam.addRow(u.getUniProtAc(), u.getStart(), u.getStop(), pf.getAc());
+						OrganismStats.addPfamDomain(u.getUniProtAc());
+					}
+				}
 				
 				pf = new PfamEntry();
 			}
@@ -73,6 +83,9 @@ public class Pfam {
 		}
 		scanner.close();
 		
+		prot2pfam.close();
+		pfam.close();
+		
 	}
 	
 	public static String extract_id(String line) {
@@ -102,42 +115,5 @@ public class Pfam {
 		
 		return new UniProtDomain(uniprotac, start, stop);	
 	}
-	
-	public static void insert_prot2pfam(String uniprot_ac, int start, int stop, String pfam_ac) {
-		
-		String SQL = "INSERT INTO protein2pfam VALUES(?,?,?,?)";
-		
-		try (Connection conn = ConnectDB.connect();
-				PreparedStatement pstmt = conn.prepareStatement(SQL)) {
-			pstmt.setString(1, uniprot_ac);
-			pstmt.setInt(2, start);
-			pstmt.setInt(3, stop);
-			pstmt.setString(4, pfam_ac);
-			
-			pstmt.executeUpdate();
-			conn.close();
-
-		} catch (SQLException ex) {
-			System.out.println(ex.getMessage());
-		}
-	}
-	
-	public static void insert_pfam(String pfam_ac, String pfam_id, String descr) {
-		
-		String SQL = "INSERT INTO pfam VALUES(?,?,?)";
-		
-		try (Connection conn = ConnectDB.connect();
-				PreparedStatement pstmt = conn.prepareStatement(SQL)) {
-			pstmt.setString(1, pfam_ac);
-			pstmt.setString(2, pfam_id);
-			pstmt.setString(3, descr);
-			
-			pstmt.executeUpdate();
-			conn.close();
-
-		} catch (SQLException ex) {
-			System.out.println(ex.getMessage());
-		}
-	}
 
 }
@@ -0,0 +1,75 @@
+package repository;
+
+/**
+ * This class represents a row of relation "cds" (a protein-coding gene of a genome), as read
+ * by class Repository.java.
+ * 
+ * @since	2026-10-17
+ * @version	1.0
+ *
+ */
+
+public class CdsInfo {
+
+	//Attributes
+	private final int cdsid;			//CDS ID
+	private final String gene;			//gene name
+	private final String locusTag;		//locus tag
+	private final String type;			//whether "complement", "join" etc.
+	private final String product;		//product name
+	private final String proteinId;		//RefSeq protein ID
+	private final String uniprotAc;		//UniProt AC, or null
+	private final String protAaSeq;		//translation
+	private final String genomeAc;		//genome accession
+	
+	//Constructor
+	public CdsInfo(int cdsid, String gene, String locusTag, String type, String product, String proteinId, String uniprotAc, String protAaSeq, String genomeAc) {
+		this.cdsid = cdsid;
+		this.gene = gene;
+		this.locusTag = locusTag;
+		this.type = type;
+		this.product = product;
+		this.proteinId = proteinId;
+		this.uniprotAc = uniprotAc;
+		this.protAaSeq = protAaSeq;
+		this.genomeAc = genomeAc;
+	}
+	
+	//Getters
+	public int getCdsid() {
+		return cdsid;
+	}
+
+	public String getGene() {
+		return gene;
+	}
+
+	public String getLocusTag() {
+		return locusTag;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	public String getProduct() {
+		return product;
+	}
+
+	public String getProteinId() {
+		return proteinId;
+	}
+
+	public String getUniprotAc() {
+		return uniprotAc;
+	}
+
+	public String getProtAaSeq() {
+		return protAaSeq;
+	}
+
+	public String getGenomeAc() {
+		return genomeAc;
+	}
+
+}
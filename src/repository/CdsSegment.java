@@ -0,0 +1,52 @@
+package repository;
+
+/**
+ * This class represents a row of relation "cds_ntseq": one segment of the nucleotide
+ * sequence of a CDS on its genome. The sequence is that of the forward strand, also for a
+ * CDS on the reverse strand (see method getCdsSequence() of class Repository.java).
+ * 
+ * @since	2026-10-17
+ * @version	1.0
+ *
+ */
+
+public class CdsSegment {
+
+	//Attributes
+	private final int cdsid;		//CDS ID
+	private final int start;		//start position on the genome
+	private final int stop;			//end position on the genome
+	private final String strand;	//"+" (forward) or "-" (complement), or null
+	private final String seq;		//nucleotide sequence
+	
+	//Constructor
+	public CdsSegment(int cdsid, int start, int stop, String strand, String seq) {
+		this.cdsid = cdsid;
+		this.start = start;
+		this.stop = stop;
+		this.strand = strand;
+		this.seq = seq;
+	}
+	
+	//Getters
+	public int getCdsid() {
+		return cdsid;
+	}
+
+	public int getStart() {
+		return start;
+	}
+
+	public int getStop() {
+		return stop;
+	}
+
+	public String getStrand() {
+		return strand;
+	}
+
+	public String getSeq() {
+		return seq;
+	}
+
+}
@@ -0,0 +1,39 @@
+package repository;
+
+/**
+ * This class represents a row of relation "genome" without its nucleotide sequence, which
+ * can be large (see method getGenomeSequence() of class Repository.java).
+ * 
+ * @since	2026-10-17
+ * @version	1.0
+ *
+ */
+
+public class GenomeInfo {
+
+	//Attributes
+	private final String ac;		//RefSeq accession
+	private final int oid;			//organism ID
+	private final int length;		//length of the nucleotide sequence
+	
+	//Constructor
+	public GenomeInfo(String ac, int oid, int length) {
+		this.ac = ac;
+		this.oid = oid;
+		this.length = length;
+	}
+	
+	//Getters
+	public String getAc() {
+		return ac;
+	}
+
+	public int getOid() {
+		return oid;
+	}
+
+	public int getLength() {
+		return length;
+	}
+
+}
@@ -0,0 +1,50 @@
+package repository;
+
+/**
+ * This class represents a GO term annotating a protein (relations "protein2go" and "go").
+ * 
+ * @since	2026-10-17
+ * @version	1.0
+ *
+ */
+
+public class GoTermInfo {
+
+	//Attributes
+	private final String uniprotAc;			//UniProt AC
+	private final String goId;				//GO ID
+	private final String name;				//term name
+	private final String namespace;			//namespace
+	private final String definition;		//definition
+	
+	//Constructor
+	public GoTermInfo(String uniprotAc, String goId, String name, String namespace, String definition) {
+		this.uniprotAc = uniprotAc;
+		this.goId = goId;
+		this.name = name;
+		this.namespace = namespace;
+		this.definition = definition;
+	}
+	
+	//Getters
+	public String getUniprotAc() {
+		return uniprotAc;
+	}
+
+	public String getGoId() {
+		return goId;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getNamespace() {
+		return namespace;
+	}
+
+	public String getDefinition() {
+		return definition;
+	}
+
+}
@@ -0,0 +1,38 @@
+package repository;
+
+/**
+ * This class represents a row of relation "organism", as read by class Repository.java.
+ * 
+ * @since	2026-10-17
+ * @version	1.0
+ *
+ */
+
+public class Organism {
+
+	//Attributes
+	private final int oid;					//organism ID
+	private final String species;			//scientific name
+	private final Integer taxonomyId;		//NCBI taxonomy ID, or null
+	
+	//Constructor
+	public Organism(int oid, String species, Integer taxonomyId) {
+		this.oid = oid;
+		this.species = species;
+		this.taxonomyId = taxonomyId;
+	}
+	
+	//Getters
+	public int getOid() {
+		return oid;
+	}
+
+	public String getSpecies() {
+		return species;
+	}
+
+	public Integer getTaxonomyId() {
+		return taxonomyId;
+	}
+
+}
@@ -0,0 +1,70 @@
+package repository;
+
+/**
+ * This class represents a row of relation "organism_stats", the summary statistics of an
+ * organism maintained during the load (see class OrganismStats.java).
+ *
+ * @since	2026-10-17
+ * @version	1.0
+ *
+ */
+
+public class OrganismSummary {
+
+	//Attributes
+	private final int oid;					//organism ID
+	private final int genomes;				//number of genomes
+	private final int cds;					//number of CDS
+	private final int cdsUniProt;			//number of CDS mapped to a UniProt AC
+	private final int proteinsGo;			//number of proteins with GO terms
+	private final int proteinsPfam;			//number of proteins with Pfam domains
+	private final int proteinsPdb;			//number of proteins mapped to PDB chains
+	private final long genomeLength;		//total length of the genomes
+
+	//Constructor
+	public OrganismSummary(int oid, int genomes, int cds, int cdsUniProt, int proteinsGo, int proteinsPfam,
+			int proteinsPdb, long genomeLength) {
+		this.oid = oid;
+		this.genomes = genomes;
+		this.cds = cds;
+		this.cdsUniProt = cdsUniProt;
+		this.proteinsGo = proteinsGo;
+		this.proteinsPfam = proteinsPfam;
+		this.proteinsPdb = proteinsPdb;
+		this.genomeLength = genomeLength;
+	}
+
+	//Getters
+	public int getOid() {
+		return oid;
+	}
+
+	public int getGenomes() {
+		return genomes;
+	}
+
+	public int getCds() {
+		return cds;
+	}
+
+	public int getCdsUniProt() {
+		return cdsUniProt;
+	}
+
+	public int getProteinsGo() {
+		return proteinsGo;
+	}
+
+	public int getProteinsPfam() {
+		return proteinsPfam;
+	}
+
+	public int getProteinsPdb() {
+		return proteinsPdb;
+	}
+
+	public long getGenomeLength() {
+		return genomeLength;
+	}
+
+}
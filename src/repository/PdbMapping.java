@@ -0,0 +1,62 @@
+package repository;
+
+/**
+ * This class represents the mapping of a protein onto a PDB chain (relation "protein2pdb").
+ * 
+ * @since	2026-10-17
+ * @version	1.0
+ *
+ */
+
+public class PdbMapping {
+
+	//Attributes
+	private final String uniprotAc;		//UniProt AC
+	private final int spStart;			//start position on the UniProt sequence
+	private final int spStop;			//end position on the UniProt sequence
+	private final String pdbId;			//PDB ID
+	private final String chain;			//chain label
+	private final String pdbStart;		//start residue in the PDB entry
+	private final String pdbStop;		//end residue in the PDB entry
+	
+	//Constructor
+	public PdbMapping(String uniprotAc, int spStart, int spStop, String pdbId, String chain, String pdbStart, String pdbStop) {
+		this.uniprotAc = uniprotAc;
+		this.spStart = spStart;
+		this.spStop = spStop;
+		this.pdbId = pdbId;
+		this.chain = chain;
+		this.pdbStart = pdbStart;
+		this.pdbStop = pdbStop;
+	}
+	
+	//Getters
+	public String getUniprotAc() {
+		return uniprotAc;
+	}
+
+	public int getSpStart() {
+		return spStart;
+	}
+
+	public int getSpStop() {
+		return spStop;
+	}
+
+	public String getPdbId() {
+		return pdbId;
+	}
+
+	public String getChain() {
+		return chain;
+	}
+
+	public String getPdbStart() {
+		return pdbStart;
+	}
+
+	public String getPdbStop() {
+		return pdbStop;
+	}
+
+}
@@ -0,0 +1,56 @@
+package repository;
+
+/**
+ * This class represents a Pfam domain of a protein (relations "protein2pfam" and "pfam").
+ * 
+ * @since	2026-10-17
+ * @version	1.0
+ *
+ */
+
+public class PfamDomain {
+
+	//Attributes
+	private final String uniprotAc;			//UniProt AC
+	private final int seqStart;				//start position on the amino acid sequence
+	private final int seqStop;				//end position on the amino acid sequence
+	private final String pfamAc;			//Pfam AC
+	private final String pfamId;			//Pfam ID
+	private final String description;		//description
+	
+	//Constructor
+	public PfamDomain(String uniprotAc, int seqStart, int seqStop, String pfamAc, String pfamId, String description) {
+		this.uniprotAc = uniprotAc;
+		this.seqStart = seqStart;
+		this.seqStop = seqStop;
+		this.pfamAc = pfamAc;
+		this.pfamId = pfamId;
+		this.description = description;
+	}
+	
+	//Getters
+	public String getUniprotAc() {
+		return uniprotAc;
+	}
+
+	public int getSeqStart() {
+		return seqStart;
+	}
+
+	public int getSeqStop() {
+		return seqStop;
+	}
+
+	public String getPfamAc() {
+		return pfamAc;
+	}
+
+	public String getPfamId() {
+		return pfamId;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+}
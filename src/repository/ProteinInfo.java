@@ -0,0 +1,62 @@
+package repository;
+
+/**
+ * This class represents a row of relation "protein", as read by class Repository.java.
+ * 
+ * @since	2026-10-17
+ * @version	1.0
+ *
+ */
+
+public class ProteinInfo {
+
+	//Attributes
+	private final String uniprotAc;			//UniProt AC
+	private final String uniprotId;			//UniProt ID
+	private final String name;				//protein name
+	private final String function;			//function
+	private final String scLocation;		//subcellular location
+	private final String aaSequence;		//amino acid sequence
+	private final Integer aaSeqLength;		//length of the amino acid sequence
+	
+	//Constructor
+	public ProteinInfo(String uniprotAc, String uniprotId, String name, String function, String scLocation, String aaSequence, Integer aaSeqLength) {
+		this.uniprotAc = uniprotAc;
+		this.uniprotId = uniprotId;
+		this.name = name;
+		this.function = function;
+		this.scLocation = scLocation;
+		this.aaSequence = aaSequence;
+		this.aaSeqLength = aaSeqLength;
+	}
+	
+	//Getters
+	public String getUniprotAc() {
+		return uniprotAc;
+	}
+
+	public String getUniprotId() {
+		return uniprotId;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getFunction() {
+		return function;
+	}
+
+	public String getScLocation() {
+		return scLocation;
+	}
+
+	public String getAaSequence() {
+		return aaSequence;
+	}
+
+	public Integer getAaSeqLength() {
+		return aaSeqLength;
+	}
+
+}
@@ -0,0 +1,240 @@
+package repository;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import util.Config;
+import util.ConnectDB;
+
+/**
+ * This class is a size-bounded cache of query results of class Repository.java, keyed by
+ * accession. The least recently used entry is evicted once tagopsin.cache.size entries are
+ * held, and entries expire tagopsin.cache.ttl seconds after they were loaded. Keys found
+ * absent from the database are cached too, so that repeated misses cost no query.
+ *
+ * Every finished TAGOPSIN load adds a row to relation "load_generation" (see method
+ * markLoadFinished()). Caches compare the latest generation with the one they were filled
+ * from at most every tagopsin.cache.checkInterval seconds, and are emptied when it changed,
+ * also in processes other than the loader (see method configure() of class Repository.java).
+ *
+ * Every emptying also advances the generation of the caches, which each entry records when
+ * its query starts (see method getGeneration()): an entry loaded by a query started before
+ * the caches were emptied is not cached, so that it cannot outlive the load that changed it.
+ *
+ * Hits, misses, evictions and expirations are counted per cache (see method getStats()).
+ *
+ * @since	2026-10-17
+ * @version	1.0
+ *
+ */
+
+public class QueryCache<K, V> {
+
+	private static final List<QueryCache<?, ?>> caches = new CopyOnWriteArrayList<>();
+
+	private static final long checkInterval = Math.max(0, Config.getLong("tagopsin.cache.checkInterval", 10)) * 1000000000L;
+	private static volatile long generation = -1;
+	private static volatile long checkedAt = 0;
+	private static final AtomicLong cacheGeneration = new AtomicLong();
+
+	private final String name;
+	private final int maxSize;
+	private final long ttl;
+	private final LinkedHashMap<K, Entry<V>> map = new LinkedHashMap<>(16, 0.75f, true);
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong expirations = new AtomicLong();
+
+	public QueryCache(String name) {
+
+		this.name = name;
+		this.maxSize = Math.max(0, Config.getInt("tagopsin.cache.size", 10000));
+		this.ttl = Math.max(0, Config.getLong("tagopsin.cache.ttl", 600)) * 1000000000L;
+
+		caches.add(this);
+	}
+
+	/**
+	 * Copies the cached values of the given keys into "found" (keys cached as absent are left
+	 * out), and returns the keys that are not cached.
+	 */
+	public List<K> getAll(Collection<K> keys, Map<K, V> found) {
+
+		checkGeneration();
+
+		List<K> missing = new ArrayList<>();
+		long now = System.nanoTime();
+
+		synchronized (map) {
+			for (K key : new LinkedHashSet<>(keys)) {
+
+				Entry<V> e = map.get(key);
+
+				if (e != null && (now - e.loadedAt > ttl || e.generation < cacheGeneration.get())) {
+					map.remove(key);
+					expirations.incrementAndGet();
+					e = null;
+				}
+
+				if (e == null) {
+					misses.incrementAndGet();
+					missing.add(key);
+					continue;
+				}
+
+				hits.incrementAndGet();
+				if (e.value != null)
+					found.put(key, e.value);
+			}
+		}
+
+		return missing;
+	}
+
+	/**
+	 * Caches the value of a key (null if the key is absent from the database), read by a query
+	 * started in the given generation of the caches; the value is dropped if the caches have
+	 * been emptied since.
+	 */
+	public void put(K key, V value, long generation) {
+
+		if (maxSize == 0)
+			return;
+
+		synchronized (map) {
+
+			if (generation < cacheGeneration.get())
+				return;
+
+			map.put(key, new Entry<>(value, System.nanoTime(), generation));
+
+			Iterator<K> it = map.keySet().iterator();
+			while (map.size() > maxSize && it.hasNext()) {
+				it.next();
+				it.remove();
+				evictions.incrementAndGet();
+			}
+		}
+	}
+
+	public void clear() {
+
+		synchronized (map) {
+			map.clear();
+		}
+	}
+
+	public int size() {
+
+		synchronized (map) {
+			return map.size();
+		}
+	}
+
+	//Generation of the caches, to be read before the query whose results are cached
+	public static long getGeneration() {
+		return cacheGeneration.get();
+	}
+
+	public static void invalidateAll() {
+
+		cacheGeneration.incrementAndGet();
+
+		for (QueryCache<?, ?> cache : caches)
+			cache.clear();
+	}
+
+	/**
+	 * Records the end of a load in relation "load_generation", which empties the caches of
+	 * every process reading the database.
+	 */
+	public static void markLoadFinished() {
+
+		try (Connection conn = ConnectDB.connect();
+				Statement stmt = conn != null ? conn.createStatement() : null) {
+
+			if (stmt != null)
+				stmt.executeUpdate("INSERT INTO load_generation DEFAULT VALUES");
+
+		} catch (SQLException ex) {
+			System.out.println(ex.getMessage());
+		}
+
+		invalidateAll();
+	}
+
+	public static String getStats() {
+
+		StringBuilder sb = new StringBuilder("Query caches (entries, hits, misses, hit ratio, evictions, expirations):");
+
+		for (QueryCache<?, ?> c : caches) {
+			long h = c.hits.get();
+			long m = c.misses.get();
+			sb.append(String.format("%n%-16s %8d %10d %10d %6.1f%% %10d %10d", c.name, c.size(), h, m,
+					h + m == 0 ? 0 : 100.0 * h / (h + m), c.evictions.get(), c.expirations.get()));
+		}
+
+		return sb.toString();
+	}
+
+	//Empty all caches if a load has finished since they were filled
+	private static void checkGeneration() {
+
+		long now = System.nanoTime();
+
+		if (generation >= 0 && now - checkedAt < checkInterval)
+			return;
+
+		synchronized (caches) {
+
+			if (generation >= 0 && now - checkedAt < checkInterval)
+				return;
+
+			long latest = Math.max(generation, 0);
+
+			try (Connection conn = ConnectDB.connect();
+					Statement stmt = conn != null ? conn.createStatement() : null;
+					ResultSet rs = stmt != null ? stmt.executeQuery("SELECT coalesce(max(generation), 0) FROM load_generation") : null) {
+
+				if (rs != null && rs.next())
+					latest = rs.getLong(1);
+
+			} catch (SQLException ex) {
+				System.out.println(ex.getMessage());
+			}
+
+			if (latest != generation) {
+				invalidateAll();
+				generation = latest;
+			}
+			checkedAt = now;
+		}
+	}
+
+	private static class Entry<V> {
+
+		private final V value;
+		private final long loadedAt;
+		private final long generation;
+
+		Entry(V value, long loadedAt, long generation) {
+			this.value = value;
+			this.loadedAt = loadedAt;
+			this.generation = generation;
+		}
+	}
+
+}
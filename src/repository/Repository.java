@@ -0,0 +1,672 @@
+package repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import util.Config;
+import util.ConnectDB;
+import util.DBqueries;
+import util.NtCodec;
+import util.SequenceChecksum;
+
+/**
+ * This class is the read side of the database "tagopsin": organisms, their genomes and CDS,
+ * and the proteins with their GO terms, Pfam domains and PDB mappings, without writing SQL
+ * against the schema of class SQL_DDL.java.
+ *
+ * Methods returning a Stream read through a server-side cursor, tagopsin.fetchSize rows at a
+ * time, so that large results are never held in memory; the stream holds a connection until
+ * it is exhausted or closed, so it should be used in a try-with-resources statement. Methods
+ * taking a collection of accessions look them up tagopsin.repository.batchSize at a time
+ * with one "= ANY(?)" query per batch. All statements are constant prepared statements, which
+ * are reused through the statement cache of the connection pool (see class ConnectionPool.java).
+ *
+ * The lookups of proteins and of their GO terms, Pfam domains and PDB mappings are cached
+ * (see class QueryCache.java); the lists they return are shared and must not be modified.
+ *
+ * Outside a load, the connection is configured with method configure() or with the system
+ * properties tagopsin.db.url, tagopsin.db.user and tagopsin.db.password.
+ *
+ * A database error is raised as an IllegalStateException.
+ *
+ * @since	2026-10-17
+ * @version	1.0
+ *
+ */
+
+public class Repository {
+
+	private static final int FETCH_SIZE = Math.max(1, Config.getInt("tagopsin.fetchSize", 10000));
+	private static final int BATCH_SIZE = Math.max(1, Config.getInt("tagopsin.repository.batchSize", 1000));
+
+	//Whether cds_ntseq has column span, read once per database (see method getOverlapSQL())
+	private static volatile Boolean spanColumn;
+
+	//Caches of the lookups by UniProt AC (see class QueryCache.java)
+	private static final QueryCache<String, ProteinInfo> proteinCache = new QueryCache<>("protein");
+	private static final QueryCache<String, List<GoTermInfo>> goCache = new QueryCache<>("protein2go");
+	private static final QueryCache<String, List<PfamDomain>> pfamCache = new QueryCache<>("protein2pfam");
+	private static final QueryCache<String, List<PdbMapping>> pdbCache = new QueryCache<>("protein2pdb");
+
+	private static final String CDS_COLUMNS = "c.cdsid, c.gene, c.locus_tag, c.type, c.product, c.protein_id, "
+			+ "c.uniprot_ac, coalesce(c.prot_aa_seq, (SELECT d.aa_sequence FROM aa_seq d WHERE d.seq_id = c.prot_seq_id)), "
+			+ "c.genome_ac";
+
+	//Connection parameters of a process not started by MainProgram (see class ConnectDB.java)
+	public static void configure(String url, String user, String password) {
+		ConnectDB.configure(url, user, password);
+		spanColumn = null;
+	}
+
+	//Organisms
+
+	public static Stream<Organism> streamOrganisms() {
+
+		String SQL = "SELECT oid, species, taxonomy_id FROM organism ORDER BY species, oid";
+
+		return stream(SQL, pstmt -> {}, Repository::toOrganism);
+	}
+
+	//Organism of the given scientific name (the lowest OID if the name occurs more than once), or null
+	public static Organism findOrganism(String species) {
+
+		String SQL = "SELECT oid, species, taxonomy_id FROM organism WHERE species = ? ORDER BY oid LIMIT 1";
+
+		try (Stream<Organism> s = stream(SQL, pstmt -> pstmt.setString(1, species), Repository::toOrganism)) {
+			return s.findFirst().orElse(null);
+		}
+	}
+
+	//Summary statistics of an organism (see class OrganismStats.java), or null
+	public static OrganismSummary getOrganismSummary(int oid) {
+
+		String SQL = "SELECT oid, genomes, cds, cds_uniprot, proteins_go, proteins_pfam, proteins_pdb, genome_length "
+				+ "FROM organism_stats WHERE oid = ?";
+
+		try (Stream<OrganismSummary> s = stream(SQL, pstmt -> pstmt.setInt(1, oid),
+				rs -> new OrganismSummary(rs.getInt(1), rs.getInt(2), rs.getInt(3), rs.getInt(4), rs.getInt(5),
+						rs.getInt(6), rs.getInt(7), rs.getLong(8)))) {
+			return s.findFirst().orElse(null);
+		}
+	}
+
+	//Genomes
+
+	public static Stream<GenomeInfo> streamGenomes(int oid) {
+
+		String SQL = "SELECT ac, oid, coalesce(seq_length, length(nt_sequence)) FROM genome WHERE oid = ? ORDER BY ac";
+
+		return stream(SQL, pstmt -> pstmt.setInt(1, oid),
+				rs -> new GenomeInfo(rs.getString(1), rs.getInt(2), rs.getInt(3)));
+	}
+
+	//Nucleotide sequence of a genome, or null
+	public static String getGenomeSequence(String ac) {
+
+		String SQL = "SELECT nt_sequence, nt_packed FROM genome WHERE ac = ?";
+
+		String seq;
+		try (Stream<String> s = stream(SQL, pstmt -> pstmt.setString(1, ac), rs -> getSequence(rs, 1))) {
+			seq = s.findFirst().orElse(null);
+		}
+
+		//sequences loaded in chunks (see class SequenceChunks.java)
+		if (seq == null)
+			seq = getGenomeRegion(ac, 1, Integer.MAX_VALUE);
+
+		return seq;
+	}
+
+	/**
+	 * Region of the nucleotide sequence of a genome, read from the chunks it overlaps only
+	 * (see class SequenceChunks.java), or from column "nt_sequence" of a genome loaded without
+	 * chunks.
+	 *
+	 * @param start 	position of the first nucleotide, from 1 as in GenBank
+	 * @param stop 		position of the last nucleotide (inclusive)
+	 * @return the region, shorter if it extends past the end of the sequence, or null if the
+	 * 		   sequence of the genome is not stored
+	 */
+	public static String getGenomeRegion(String ac, int start, int stop) {
+
+		//chunks from the one containing "start" (the last one starting at or before it) up to "stop"
+		String SQL = "SELECT start, seq, seq_packed FROM genome_chunk WHERE genome_ac = ? AND start <= ? "
+				+ "AND start >= (SELECT coalesce(max(start), 1) FROM genome_chunk WHERE genome_ac = ? AND start <= ?) "
+				+ "ORDER BY start";
+
+		StringBuilder sb = new StringBuilder();
+		int[] first = { 0 };
+
+		try (Stream<String> s = stream(SQL, pstmt -> {
+					pstmt.setString(1, ac);
+					pstmt.setInt(2, stop);
+					pstmt.setString(3, ac);
+					pstmt.setInt(4, Math.max(start, 1));
+				}, rs -> {
+					if (first[0] == 0)
+						first[0] = rs.getInt(1);
+					return getSequence(rs, 2);
+				})) {
+			s.forEachOrdered(sb::append);
+		}
+
+		if (first[0] > 0) {
+			int from = Math.min(Math.max(start, 1) - first[0], sb.length());
+			int to = Math.min(stop - first[0] + 1, sb.length());
+			return from < to ? sb.substring(from, to) : "";
+		}
+
+		//a packed sequence is decoded whole
+		String SQLs = "SELECT substr(nt_sequence, ?, ?), nt_packed FROM genome WHERE ac = ?";
+
+		try (Stream<String> s = stream(SQLs, pstmt -> {
+					pstmt.setInt(1, Math.max(start, 1));
+					pstmt.setInt(2, Math.max(0, stop - Math.max(start, 1) + 1));
+					pstmt.setString(3, ac);
+				}, rs -> {
+					byte[] packed = rs.getBytes(2);
+					if (packed == null)
+						return rs.getString(1);
+					String seq = NtCodec.decode(packed);
+					int from = Math.min(Math.max(start, 1) - 1, seq.length());
+					return seq.substring(from, Math.max(from, Math.min(stop, seq.length())));
+				})) {
+			return s.filter(seq -> seq != null).findFirst().orElse(null);
+		}
+	}
+
+	//CDS
+
+	public static Stream<CdsInfo> streamCds(String genomeAc) {
+
+		String SQL = "SELECT " + CDS_COLUMNS + " FROM cds c WHERE c.genome_ac = ? ORDER BY c.cdsid";
+
+		return stream(SQL, pstmt -> pstmt.setString(1, genomeAc), Repository::toCds);
+	}
+
+	//CDS of all genomes of an organism
+	public static Stream<CdsInfo> streamCdsOfOrganism(int oid) {
+
+		String SQL = "SELECT " + CDS_COLUMNS + " FROM cds c JOIN genome g ON g.ac = c.genome_ac "
+				+ "WHERE g.oid = ? ORDER BY c.genome_ac, c.cdsid";
+
+		return stream(SQL, pstmt -> pstmt.setInt(1, oid), Repository::toCds);
+	}
+
+	/**
+	 * CDS with a segment overlapping positions start to stop (inclusive) of a genome, read
+	 * through the GiST index on cds_ntseq (genome_ac, span) in PostgreSQL 12 or higher.
+	 */
+	public static Stream<CdsInfo> streamCdsInRegion(String genomeAc, int start, int stop) {
+
+		String SQL = "SELECT " + CDS_COLUMNS + " FROM cds c WHERE c.genome_ac = ? AND c.cdsid IN "
+				+ "(SELECT s.cdsid FROM cds_ntseq s WHERE s.genome_ac = ? AND " + getOverlapSQL() + ") ORDER BY c.cdsid";
+
+		return stream(SQL, pstmt -> {
+			pstmt.setString(1, genomeAc);
+			pstmt.setString(2, genomeAc);
+			pstmt.setInt(3, start);
+			pstmt.setInt(4, stop);
+		}, Repository::toCds);
+	}
+
+	/**
+	 * Up to k CDS nearest to a position of a genome, nearest first: those with a segment
+	 * containing it, then by the distance from the position to the closest end of their
+	 * segments. Each side of the position is probed for its k nearest distinct CDS (a CDS of
+	 * several segments counts once, at the distance of its closest segment), reading the
+	 * segments through the indexes on cds_ntseq (genome_ac, stop) and (genome_ac, start).
+	 */
+	public static List<CdsInfo> findNearestCds(String genomeAc, int position, int k) {
+
+		String SQL = "SELECT " + CDS_COLUMNS + " FROM (SELECT d.cdsid, min(d.distance) AS distance FROM ("
+				+ "(SELECT s.cdsid, 0 AS distance FROM cds_ntseq s WHERE s.genome_ac = ? AND " + getOverlapSQL() + ") UNION ALL "
+				+ "(SELECT s.cdsid, ? - max(s.stop) FROM cds_ntseq s WHERE s.genome_ac = ? AND s.stop < ? "
+				+ "GROUP BY s.cdsid ORDER BY max(s.stop) DESC, s.cdsid LIMIT ?) UNION ALL "
+				+ "(SELECT s.cdsid, min(s.start) - ? FROM cds_ntseq s WHERE s.genome_ac = ? AND s.start > ? "
+				+ "GROUP BY s.cdsid ORDER BY min(s.start), s.cdsid LIMIT ?)"
+				+ ") d GROUP BY d.cdsid ORDER BY distance, d.cdsid LIMIT ?) n "
+				+ "JOIN cds c ON c.cdsid = n.cdsid ORDER BY n.distance, c.cdsid";
+
+		try (Stream<CdsInfo> s = stream(SQL, pstmt -> {
+			pstmt.setString(1, genomeAc);
+			pstmt.setInt(2, position);
+			pstmt.setInt(3, position);
+			pstmt.setInt(4, position);
+			pstmt.setString(5, genomeAc);
+			pstmt.setInt(6, position);
+			pstmt.setInt(7, k);
+			pstmt.setInt(8, position);
+			pstmt.setString(9, genomeAc);
+			pstmt.setInt(10, position);
+			pstmt.setInt(11, k);
+			pstmt.setInt(12, k);
+		}, Repository::toCds)) {
+			return s.collect(Collectors.toList());
+		}
+	}
+
+	//CDS whose translation is identical to the sequence of a Swiss-Prot entry (see class SequenceChecksum.java)
+	public static Stream<CdsInfo> streamCdsIdenticalToProtein(String uniprotAc) {
+
+		String SQL = "SELECT " + CDS_COLUMNS + " FROM cds c JOIN protein p "
+				+ "ON p.seq_crc64 = c.prot_crc64 AND p.seq_md5 = c.prot_md5 WHERE p.uniprot_ac = ? ORDER BY c.cdsid";
+
+		return stream(SQL, pstmt -> pstmt.setString(1, uniprotAc), Repository::toCds);
+	}
+
+	//CDS whose translation is identical to the sequence of a protein isoform
+	public static Stream<CdsInfo> streamCdsIdenticalToIsoform(String isoformAc) {
+
+		String SQL = "SELECT " + CDS_COLUMNS + " FROM cds c JOIN protein_isoform i "
+				+ "ON i.seq_crc64 = c.prot_crc64 AND i.seq_md5 = c.prot_md5 WHERE i.isoform_ac = ? ORDER BY c.cdsid";
+
+		return stream(SQL, pstmt -> pstmt.setString(1, isoformAc), Repository::toCds);
+	}
+
+	//CDS whose translation is identical to the SEQRES sequence of a PDB chain
+	public static Stream<CdsInfo> streamCdsIdenticalToPdbChain(String pdbId, String chain) {
+
+		String SQL = "SELECT " + CDS_COLUMNS + " FROM cds c JOIN pdb_chain h "
+				+ "ON h.seq_crc64 = c.prot_crc64 AND h.seq_md5 = c.prot_md5 WHERE h.pdb_id = ? AND h.chain = ? "
+				+ "ORDER BY c.cdsid";
+
+		return stream(SQL, pstmt -> {
+			pstmt.setString(1, pdbId);
+			pstmt.setString(2, chain);
+		}, Repository::toCds);
+	}
+
+	//CDS whose translation is the given amino acid sequence
+	public static Stream<CdsInfo> streamCdsBySequence(String aaSequence) {
+
+		String SQL = "SELECT " + CDS_COLUMNS + " FROM cds c WHERE c.prot_crc64 = ? AND c.prot_md5 = ? ORDER BY c.cdsid";
+
+		Long crc64 = SequenceChecksum.crc64(aaSequence);
+		UUID md5 = SequenceChecksum.md5(aaSequence);
+
+		if (crc64 == null)
+			return Stream.empty();
+
+		return stream(SQL, pstmt -> {
+			pstmt.setLong(1, crc64);
+			pstmt.setObject(2, md5);
+		}, Repository::toCds);
+	}
+
+	//Swiss-Prot entries whose sequence is identical to the translation of a CDS
+	public static Map<String, ProteinInfo> findProteinsIdenticalToCds(int cdsid) {
+
+		String SQL = "SELECT p.uniprot_ac FROM protein p JOIN cds c "
+				+ "ON c.prot_crc64 = p.seq_crc64 AND c.prot_md5 = p.seq_md5 WHERE c.cdsid = ? ORDER BY p.uniprot_ac";
+
+		List<String> uniprotACs;
+		try (Stream<String> s = stream(SQL, pstmt -> pstmt.setInt(1, cdsid), rs -> rs.getString(1))) {
+			uniprotACs = s.collect(Collectors.toList());
+		}
+
+		return findProteins(uniprotACs);
+	}
+
+	//Nucleotide segments of each CDS, in order of position
+	public static Map<Integer, List<CdsSegment>> findCdsSegments(Collection<Integer> cdsids) {
+
+		String SQL = "SELECT s.cdsid, s.start, s.stop, s.strand, s.seq, s.seq_packed, c.genome_ac "
+				+ "FROM cds_ntseq s JOIN cds c ON c.cdsid = s.cdsid WHERE s.cdsid = ANY(?) ORDER BY s.cdsid, s.start";
+
+		return findSegments(SQL, cdsids);
+	}
+
+	/**
+	 * Nucleotide sequence of a CDS: its segments joined in the order of the GenBank location
+	 * (reversed for a location complement(join(...))), each reverse-complemented if it is on
+	 * the complement strand; null if the CDS has no segments.
+	 */
+	public static String getCdsSequence(int cdsid) {
+
+		String SQL = "SELECT s.cdsid, s.start, s.stop, s.strand, s.seq, s.seq_packed, c.genome_ac "
+				+ "FROM cds_ntseq s JOIN cds c ON c.cdsid = s.cdsid WHERE s.cdsid = ANY(?) "
+				+ "ORDER BY CASE WHEN c.type = 'complement_join' THEN -s.ntsid ELSE s.ntsid END";
+
+		List<CdsSegment> segments = findSegments(SQL, Collections.singletonList(cdsid)).get(cdsid);
+
+		if (segments == null)
+			return null;
+
+		StringBuilder sb = new StringBuilder();
+		for (CdsSegment s : segments) {
+			if (s.getSeq() == null)
+				return null;
+			sb.append("-".equals(s.getStrand()) ? reverseComplement(s.getSeq()) : s.getSeq());
+		}
+
+		return sb.toString();
+	}
+
+	//Proteins
+
+	public static Map<String, ProteinInfo> findProteins(Collection<String> uniprotACs) {
+		return cached(proteinCache, uniprotACs, Repository::loadProteins);
+	}
+
+	private static Map<String, ProteinInfo> loadProteins(Collection<String> uniprotACs) {
+
+		String SQL = "SELECT p.uniprot_ac, p.uniprot_id, p.name, p.function, p.sc_location, "
+				+ "coalesce(p.aa_sequence, d.aa_sequence), p.aa_seq_length "
+				+ "FROM protein p LEFT JOIN aa_seq d ON d.seq_id = p.seq_id WHERE p.uniprot_ac = ANY(?)";
+
+		Map<String, ProteinInfo> map = new LinkedHashMap<>();
+
+		lookup(SQL, "varchar", uniprotACs, rs -> new ProteinInfo(rs.getString(1), rs.getString(2), rs.getString(3),
+				rs.getString(4), rs.getString(5), rs.getString(6), getInteger(rs, 7)),
+				p -> map.put(p.getUniprotAc(), p));
+
+		return map;
+	}
+
+	public static Map<String, List<GoTermInfo>> findGoTerms(Collection<String> uniprotACs) {
+		return cached(goCache, uniprotACs, Repository::loadGoTerms);
+	}
+
+	private static Map<String, List<GoTermInfo>> loadGoTerms(Collection<String> uniprotACs) {
+
+		String SQL = "SELECT p.uniprot_ac, p.go_id, g.name, g.namespace, g.definition "
+				+ "FROM protein2go p LEFT JOIN go g ON g.go_id = p.go_id "
+				+ "WHERE p.uniprot_ac = ANY(?) ORDER BY p.uniprot_ac, p.go_id";
+
+		Map<String, List<GoTermInfo>> map = new LinkedHashMap<>();
+
+		lookup(SQL, "varchar", uniprotACs, rs -> new GoTermInfo(rs.getString(1), rs.getString(2), rs.getString(3),
+				rs.getString(4), rs.getString(5)),
+				t -> map.computeIfAbsent(t.getUniprotAc(), k -> new ArrayList<>()).add(t));
+
+		return map;
+	}
+
+	public static Map<String, List<PfamDomain>> findPfamDomains(Collection<String> uniprotACs) {
+		return cached(pfamCache, uniprotACs, Repository::loadPfamDomains);
+	}
+
+	private static Map<String, List<PfamDomain>> loadPfamDomains(Collection<String> uniprotACs) {
+
+		String SQL = "SELECT p.uniprot_ac, p.seq_start, p.seq_stop, p.pfam_ac, f.pfam_id, f.description "
+				+ "FROM protein2pfam p LEFT JOIN pfam f ON f.pfam_ac = p.pfam_ac "
+				+ "WHERE p.uniprot_ac = ANY(?) ORDER BY p.uniprot_ac, p.seq_start";
+
+		Map<String, List<PfamDomain>> map = new LinkedHashMap<>();
+
+		lookup(SQL, "varchar", uniprotACs, rs -> new PfamDomain(rs.getString(1), rs.getInt(2), rs.getInt(3),
+				rs.getString(4), rs.getString(5), rs.getString(6)),
+				d -> map.computeIfAbsent(d.getUniprotAc(), k -> new ArrayList<>()).add(d));
+
+		return map;
+	}
+
+	public static Map<String, List<PdbMapping>> findPdbMappings(Collection<String> uniprotACs) {
+		return cached(pdbCache, uniprotACs, Repository::loadPdbMappings);
+	}
+
+	private static Map<String, List<PdbMapping>> loadPdbMappings(Collection<String> uniprotACs) {
+
+		String SQL = "SELECT uniprot_ac, sp_start, sp_stop, pdb_id, chain, pdb_start, pdb_stop "
+				+ "FROM protein2pdb WHERE uniprot_ac = ANY(?) ORDER BY uniprot_ac, sp_start, pdb_id, chain";
+
+		Map<String, List<PdbMapping>> map = new LinkedHashMap<>();
+
+		lookup(SQL, "varchar", uniprotACs, rs -> new PdbMapping(rs.getString(1), rs.getInt(2), rs.getInt(3),
+				rs.getString(4), rs.getString(5), rs.getString(6), rs.getString(7)),
+				m -> map.computeIfAbsent(m.getUniprotAc(), k -> new ArrayList<>()).add(m));
+
+		return map;
+	}
+
+	//Row mappers
+
+	/**
+	 * Segments of CDS read with one of the queries above; segments loaded without a sequence
+	 * (tagopsin.cds.lazySequence) get theirs from the genome, with one read per genome of the
+	 * region spanning them all (see method getGenomeRegion()).
+	 */
+	private static Map<Integer, List<CdsSegment>> findSegments(String SQL, Collection<Integer> cdsids) {
+
+		Map<Integer, List<CdsSegment>> map = new LinkedHashMap<>();
+		Map<Integer, String> genomes = new HashMap<>();
+
+		lookup(SQL, "integer", cdsids, rs -> {
+					genomes.put(rs.getInt(1), rs.getString(7));
+					return new CdsSegment(rs.getInt(1), rs.getInt(2), rs.getInt(3), rs.getString(4), getSequence(rs, 5));
+				},
+				s -> map.computeIfAbsent(s.getCdsid(), k -> new ArrayList<>()).add(s));
+
+		//positions spanned by the segments without a sequence, per genome
+		Map<String, int[]> spans = new HashMap<>();
+		for (List<CdsSegment> segments : map.values())
+			for (CdsSegment s : segments)
+				if (s.getSeq() == null)
+					spans.merge(genomes.get(s.getCdsid()), new int[] { s.getStart(), s.getStop() },
+							(a, b) -> new int[] { Math.min(a[0], b[0]), Math.max(a[1], b[1]) });
+
+		Map<String, String> regions = new HashMap<>();
+		for (Map.Entry<String, int[]> e : spans.entrySet())
+			regions.put(e.getKey(), getGenomeRegion(e.getKey(), e.getValue()[0], e.getValue()[1]));
+
+		for (List<CdsSegment> segments : map.values())
+			segments.replaceAll(s -> {
+				String genomeAc = genomes.get(s.getCdsid());
+				String region = regions.get(genomeAc);
+				if (s.getSeq() != null || region == null)
+					return s;
+				int first = spans.get(genomeAc)[0];
+				int from = Math.min(s.getStart() - first, region.length());
+				int to = Math.min(s.getStop() - first + 1, region.length());
+				return new CdsSegment(s.getCdsid(), s.getStart(), s.getStop(), s.getStrand(),
+						from < to ? region.substring(from, to) : "");
+			});
+
+		return map;
+	}
+
+	//Segments of cds_ntseq (s) overlapping the range of two parameters; column span is only
+	//created by PostgreSQL 12 or higher (see method getFunctionSQL() of class SQL_DDL.java)
+	private static String getOverlapSQL() {
+
+		if (spanColumn == null)
+			spanColumn = DBqueries.hasColumn("cds_ntseq", "span");
+
+		return spanColumn ? "s.span && int4range(?, ?, '[]')" : "s.stop >= ? AND s.start <= ?";
+	}
+
+	//Sequence in a varchar column, or else in the packed column after it (see class NtCodec.java)
+	private static String getSequence(ResultSet rs, int column) throws SQLException {
+
+		String seq = rs.getString(column);
+		return seq != null ? seq : NtCodec.decode(rs.getBytes(column + 1));
+	}
+
+	private static String reverseComplement(CharSequence seq) {
+
+		StringBuilder sb = new StringBuilder(seq.length());
+
+		for (int i=seq.length()-1; i>=0; i--) {
+			char c = seq.charAt(i);
+			int k = "ACGTacgt".indexOf(c);
+			sb.append(k < 0 ? c : "TGCAtgca".charAt(k));
+		}
+
+		return sb.toString();
+	}
+
+	private static Organism toOrganism(ResultSet rs) throws SQLException {
+		return new Organism(rs.getInt(1), rs.getString(2), getInteger(rs, 3));
+	}
+
+	private static CdsInfo toCds(ResultSet rs) throws SQLException {
+		return new CdsInfo(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5),
+				rs.getString(6), rs.getString(7), rs.getString(8), rs.getString(9));
+	}
+
+	//Cached values of the keys, querying (and caching) only the keys that are not cached
+	private static <V> Map<String, V> cached(QueryCache<String, V> cache, Collection<String> keys, 
+			Function<Collection<String>, Map<String, V>> loader) {
+
+		Map<String, V> map = new LinkedHashMap<>();
+		List<String> missing = cache.getAll(keys, map);
+
+		if (!missing.isEmpty()) {
+			long generation = QueryCache.getGeneration();
+			Map<String, V> loaded = loader.apply(missing);
+			for (String key : missing)
+				cache.put(key, loaded.get(key), generation);
+			map.putAll(loaded);
+		}
+
+		return map;
+	}
+
+	//Integer column that may be null
+	private static Integer getInteger(ResultSet rs, int column) throws SQLException {
+		int value = rs.getInt(column);
+		return rs.wasNull() ? null : value;
+	}
+
+	private interface Binder {
+		void bind(PreparedStatement pstmt) throws SQLException;
+	}
+
+	private interface RowMapper<T> {
+		T map(ResultSet rs) throws SQLException;
+	}
+
+	//Pooled connection (see class ConnectDB.java), which reports the reason of a failure itself
+	private static Connection connect() {
+
+		Connection conn = ConnectDB.connect();
+		if (conn == null)
+			throw new IllegalStateException("No connection to the database");
+
+		return conn;
+	}
+
+	//Run a query through a cursor; the connection is released when the stream is exhausted or closed
+	private static <T> Stream<T> stream(String SQL, Binder binder, RowMapper<T> mapper) {
+
+		Connection conn = connect();
+		ResultSet rs;
+
+		try {
+			//the PostgreSQL driver only fetches through a cursor inside a transaction
+			conn.setAutoCommit(false);
+			PreparedStatement pstmt = conn.prepareStatement(SQL);
+			pstmt.setFetchSize(FETCH_SIZE);
+			binder.bind(pstmt);
+			rs = pstmt.executeQuery();
+		} catch (SQLException ex) {
+			release(conn, null);
+			throw new IllegalStateException(ex.getMessage(), ex);
+		}
+
+		Iterator<T> it = new Iterator<T>() {
+
+			private T next = null;
+			private boolean done = false;
+
+			public boolean hasNext() {
+
+				if (next != null)
+					return true;
+				if (done)
+					return false;
+
+				try {
+					if (rs.next()) {
+						next = mapper.map(rs);
+						return true;
+					}
+				} catch (SQLException ex) {
+					done = true;
+					release(conn, rs);
+					throw new IllegalStateException(ex.getMessage(), ex);
+				}
+
+				done = true;
+				release(conn, rs);
+				return false;
+			}
+
+			public T next() {
+
+				if (!hasNext())
+					throw new NoSuchElementException();
+
+				T t = next;
+				next = null;
+				return t;
+			}
+		};
+
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(it, Spliterator.ORDERED | Spliterator.NONNULL), false)
+				.onClose(() -> release(conn, rs));
+	}
+
+	//Run a query once per batch of keys, bound as an array to its only parameter
+	private static <K, T> void lookup(String SQL, String sqlType, Collection<K> keys, RowMapper<T> mapper, Consumer<T> sink) {
+
+		List<K> distinct = new ArrayList<>(new LinkedHashSet<>(keys));
+
+		if (distinct.isEmpty())
+			return;
+
+		try (Connection conn = connect();
+				PreparedStatement pstmt = conn.prepareStatement(SQL)) {
+
+			for (int i=0; i<distinct.size(); i+=BATCH_SIZE) {
+
+				List<K> batch = distinct.subList(i, Math.min(i + BATCH_SIZE, distinct.size()));
+				pstmt.setArray(1, conn.createArrayOf(sqlType, batch.toArray()));
+
+				try (ResultSet rs = pstmt.executeQuery()) {
+					while (rs.next())
+						sink.accept(mapper.map(rs));
+				}
+			}
+
+		} catch (SQLException ex) {
+			throw new IllegalStateException(ex.getMessage(), ex);
+		}
+	}
+
+	private static void release(Connection conn, ResultSet rs) {
+
+		try {
+			if (rs != null)
+				rs.close();
+			if (!conn.isClosed()) {
+				conn.commit();
+				conn.close();
+			}
+		} catch (SQLException ex) {
+			System.out.println(ex.getMessage());
+		}
+	}
+
+}
@@ -1,12 +1,12 @@
 package taxa;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
+import java.util.Map;
 import java.util.Scanner;
 
-import util.ConnectDB;
+import util.BulkLoader;
+import util.DBqueries;
+import util.LoadPhase;
 
 /**
  * This class parses a DMP file, retrieves scientific names and taxonomy IDs, and inserts 
@@ -25,6 +25,11 @@ public class Taxonomy {
 		
 		Scanner scanner = new Scanner(new FileInputStream(filename));
 		
+		BulkLoader loader = new BulkLoader("organism", "species", "taxonomy_id");
+		
+		//In the incremental mode, organisms loaded by an earlier run are not added again
+		Map<String, Integer> loaded = LoadPhase.isIncremental() ? DBqueries.getOrganismIDs() : null;
+		
 		//Start reading file names.dmp found on NCBI Taxonomy FTP server
 		while (scanner.hasNextLine()) {
 			
@@ -44,28 +49,22 @@ public class Taxonomy {
 				
         		if (nametxtlc.startsWith(organism.toLowerCase())) {							
         			
+        			if (loaded != null && loaded.containsKey(nametxt))
+        				continue;
+        			
         			//Insert into database
-        			String SQL = "INSERT INTO organism(species, taxonomy_id) VALUES(?,?)";
-					
-					try (Connection conn = ConnectDB.connect();
-							PreparedStatement pstmt = conn.prepareStatement(SQL)) {
-						pstmt.setString(1, nametxt);
-						pstmt.setInt(2, taxid);
-						
-						pstmt.executeUpdate();
-						conn.close();
-
-					} catch (SQLException ex) {
-						System.out.println(ex.getMessage());
-						System.exit(0);
-					}
-						
+        			loader.addRow(nametxt, taxid);
 				}
 	        }
 			
 		}
 		scanner.close();
 		
+		loader.close();
+		
+		if (loader.getRowsFailed() > 0)
+			System.exit(0);
+		
 	}
 
 }
@@ -1,14 +1,11 @@
 package uniprot;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
 import java.util.Scanner;
+import java.util.Set;
 
-import util.ConnectDB;
-import util.DBqueries;
-import util.Utility;
+import util.BulkLoader;
+import util.Registry;
 
 /**
  * This class parses a DAT file. It retrieves UniProt ACs of interest, plus their UniProt ID, 
@@ -28,7 +25,10 @@ public class Protein {
 		Scanner scanner = new Scanner(new FileInputStream(filename));
 		UniProt u = new UniProt();
 		
-		String[] array = DBqueries.getCdsUniProt();
+		Set<String> cdsUniProtACs = Registry.getCdsUniProtACs();
+		
+		BulkLoader loader = new BulkLoader("protein", "uniprot_ac", "function", "sc_location", "aa_seq_length", "uniprot_id");
+		loader.setUniqueKey("uniprot_ac");
 		
 		String flag = "";
 
@@ -70,27 +70,10 @@ public class Protein {
 				}
 			}
 			if (line.startsWith("//")) {
-				if (Utility.isIDofInterest(array, u.getAc())) {
+				if (cdsUniProtACs.contains(u.getAc())) {
 					
 					//Insert into PostgreSQL "protein" table
-					String SQL = "INSERT INTO protein(uniprot_ac, function, sc_location, aa_seq_length, uniprot_id) " + 
-							"VALUES(?,?,?,?,?)";
-					
-					try (Connection conn = ConnectDB.connect();
-							PreparedStatement pstmt = conn.prepareStatement(SQL)) {
-						pstmt.setString(1, u.getAc());
-						pstmt.setString(2, u.getFunction());
-						pstmt.setString(3, u.getScLocation());
-						pstmt.setInt(4, u.getLength());
-						pstmt.setString(5, u.getId());
-						
-						pstmt.executeUpdate();
-						conn.close();
-
-					} catch (SQLException ex) {
-						System.out.println(ex.getMessage());
-					}
-					
+					loader.addRow(u.getAc(), u.getFunction(), u.getScLocation(), u.getLength(), u.getId());
 				}
 				u = new UniProt();
 				flag = "";
@@ -98,6 +81,11 @@ public class Protein {
 		}
 		scanner.close();
 		
+		loader.close();
+		
+		//UniProt ACs of interest to the later stages: those of the rows actually written
+		Registry.reloadUniProtACs();
+		
 	}
 	
 	public static String extract_id(String line) {
@@ -3,15 +3,14 @@ package uniprot;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
-import util.ConnectDB;
-import util.DBqueries;
-import util.Utility;
+import util.BulkLoader;
+import util.Registry;
+import util.SequenceChecksum;
+import util.SequenceDictionary;
 /**
  * This class reads a FASTA-format file to extract UniProt ACs and amino acid sequences of protein isoforms.
  * 
@@ -28,7 +27,11 @@ public class ReadFastaIsoform {
 		List<String> desc = new ArrayList<>();
 		List<String> seq = new ArrayList<>();
 		
-		String[] array = DBqueries.getUniProtACs();
+		Set<String> uniprotACs = Registry.getUniProtACs();
+		
+		BulkLoader loader = new BulkLoader("protein_isoform", "isoform_ac", "uniprot_ac", "isoform_aa_seq", "seq_id", 
+				"seq_crc64", "seq_md5");
+		loader.setUniqueKey("isoform_ac");
 			
         BufferedReader in = new BufferedReader(new FileReader(file));
         StringBuffer buffer = new StringBuffer();
@@ -63,25 +66,10 @@ public class ReadFastaIsoform {
 			String uniprotAc = get_uniprotAc(desc.get(i));
 			String isoformAc = get_isoformAc(desc.get(i));
 			
-			if (Utility.isIDofInterest(array, uniprotAc)) {
-				
-				String SQL = "INSERT INTO protein_isoform VALUES(?,?,?)";
-				
-				try (Connection conn = ConnectDB.connect();
-						PreparedStatement pstmt = conn.prepareStatement(SQL)) {
-					
-					pstmt.setString(1, isoformAc);
-					pstmt.setString(2, uniprotAc);
-					pstmt.setString(3, seq.get(i));
-					
-					pstmt.executeUpdate();
-					
-					conn.close();
-						
-				} catch (SQLException ex) {
-					System.out.println(ex.getMessage());
-				}
+			if (uniprotACs.contains(uniprotAc)) {
 				
+				loader.addRow(isoformAc, uniprotAc, SequenceDictionary.text(seq.get(i)), SequenceDictionary.getId(seq.get(i)), 
+						SequenceChecksum.crc64(seq.get(i)), SequenceChecksum.md5(seq.get(i)));
 			}
 			//System.out.println(uniprotac);
 			
@@ -89,6 +77,9 @@ public class ReadFastaIsoform {
 		}
 		in.close();
 		
+		loader.close();
+		SequenceDictionary.close();
+		
     }
 	
 	public static String get_isoformAc(String header) {
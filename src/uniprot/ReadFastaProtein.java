@@ -2,15 +2,14 @@ package uniprot;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
-import util.ConnectDB;
-import util.DBqueries;
-import util.Utility;
+import util.Registry;
+import util.SequenceChecksum;
+import util.SequenceDictionary;
+import util.StagedUpdate;
 
 /**
  * This class reads a FASTA-format file to extract UniProt protein names and amino acid sequences.
@@ -27,7 +26,11 @@ public class ReadFastaProtein {
 		List<String> desc = new ArrayList<>();
 		List<String> seq = new ArrayList<>();
 		
-		String[] array = DBqueries.getUniProtACs();
+		Set<String> uniprotACs = Registry.getUniProtACs();
+		
+		StagedUpdate stage = new StagedUpdate("stage_protein_fasta", 
+				"uniprot_ac varchar", "name text", "aa_sequence varchar", "seq_id integer", 
+				"seq_crc64 bigint", "seq_md5 uuid");
 			
         BufferedReader in = new BufferedReader(new FileReader(file));
         StringBuffer buffer = new StringBuffer();
@@ -59,30 +62,19 @@ public class ReadFastaProtein {
 			String ac = get_ac(desc.get(i));
 			String name = get_name(desc.get(i));
 	
-			if (Utility.isIDofInterest(array, ac)) {
-				
-				String SQL = "UPDATE protein " + 
-						"SET name = ?, aa_sequence = ? " +
-						"WHERE uniprot_ac = ?";
-				
-				try (Connection conn = ConnectDB.connect();
-						PreparedStatement pstmt = conn.prepareStatement(SQL)) {
-					pstmt.setString(1, name);
-					pstmt.setString(2, seq.get(i));
-					pstmt.setString(3, ac);
-					
-					pstmt.executeUpdate();
-					conn.close();
-						
-				} catch (SQLException ex) {
-					System.out.println(ex.getMessage());
-				}
+			if (uniprotACs.contains(ac))
 				
-			}
+				stage.addRow(ac, name, SequenceDictionary.text(seq.get(i)), SequenceDictionary.getId(seq.get(i)), 
+						SequenceChecksum.crc64(seq.get(i)), SequenceChecksum.md5(seq.get(i)));
 			
 		}
 		in.close();
 		
+		SequenceDictionary.close();
+		
+		//Update PostgreSQL, keeping the last entry read for a given UniProt AC
+		stage.apply("protein", new String[] { "uniprot_ac" }, new String[] { "name", "aa_sequence", "seq_id", "seq_crc64", "seq_md5" }, true, null);
+		
     }
 	
 	public static String get_ac(String header) {
@@ -0,0 +1,428 @@
+package util;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+/**
+ * This class streams rows into a relation of the local database "tagopsin" using the COPY
+ * protocol of PostgreSQL (or the batch write of another storage backend, see interface
+ * Storage.java). Rows are buffered and sent in one COPY operation per flush; if a COPY
+ * fails, the rows of that flush are inserted one by one in transactions of
+ * tagopsin.tx.batchSize rows, with a savepoint per row, so that only the offending rows are
+ * rejected; they are written to the quarantine file of the stage (see class Quarantine.java).
+ * The row-by-row INSERT has ON CONFLICT DO NOTHING, which only skips a row when its relation
+ * already has its keys: during a normal load they are built after the data (see class
+ * LoadPhase.java), so duplicates are caught by setUniqueKey() below, or removed before the
+ * keys are built.
+ *
+ * A loader can be given the key columns of its relation (see setUniqueKey()); rows whose key
+ * was already added are then skipped before they reach the database, keeping the first one,
+ * and are counted as duplicates instead of raising one exception per row.
+ *
+ * In the incremental mode (see class LoadPhase.java), a loader with a key whose relation
+ * already has its primary key merges its rows instead: each batch is copied into a temporary
+ * table and upserted with INSERT ... ON CONFLICT on the key, updating existing rows only when
+ * their content differs, so that rows loaded by an earlier run are not written again.
+ *
+ * Rows are also handed to the Parquet export, if enabled (see class ColumnarExport.java), once
+ * they are written: rejected rows and, outside the incremental mode, rows already present
+ * are not exported.
+ *
+ * When the rows of a loader reference rows of another loader (e.g. "cds_ntseq" and "cds"),
+ * the referenced loader is set as its parent and is always flushed first.
+ *
+ * Flushed rows are written behind the caller on a writer thread (see class WriteBehind.java)
+ * shared with the parent loader, so batches of related loaders keep their order; close()
+ * waits until all rows of the loader are written.
+ *
+ * A flush happens every tagopsin.copy.flushSize rows, or earlier once the text values of the
+ * buffered rows reach tagopsin.copy.flushChars characters (e.g. for genome sequences).
+ *
+ * @since	2026-10-17
+ * @version	1.0
+ *
+ */
+
+public class BulkLoader {
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private static final Map<String, AtomicLong> rowCounters = new ConcurrentHashMap<>();
+	private static final Map<String, AtomicLong> duplicateCounters = new ConcurrentHashMap<>();
+	private static final Map<String, AtomicLong> unchangedCounters = new ConcurrentHashMap<>();
+
+	private final String table;
+	private final String[] columns;
+	private final int flushSize;
+	private final long flushChars;
+	private final int txSize;
+	private final String copySQL;
+	private String insertSQL;
+	private String mergeSQL = null;
+	private List<Object[]> buffer;
+	private long bufferChars = 0;
+	private BulkLoader parent = null;
+	private WriteBehind writer = null;
+	private int[] keyIndexes = null;
+	private Set<String> keys = null;
+
+	private final AtomicLong rowsLoaded = new AtomicLong();
+	private final AtomicLong rowsFailed = new AtomicLong();
+	private final AtomicLong rowsDuplicate = new AtomicLong();
+	private final AtomicLong rowsUnchanged = new AtomicLong();
+
+	public BulkLoader(String table, String... columns) {
+
+		this.table = table;
+		this.columns = columns;
+		this.flushSize = Math.max(1, Config.getInt("tagopsin.copy.flushSize", 10000));
+		this.flushChars = Math.max(1, Config.getLong("tagopsin.copy.flushChars", 16000000));
+		this.txSize = Math.max(1, Config.getInt("tagopsin.tx.batchSize", 1000));
+		this.buffer = new ArrayList<>(Math.min(flushSize, 10000));
+
+		String cols = String.join(", ", columns);
+		String params = String.join(",", Collections.nCopies(columns.length, "?"));
+
+		copySQL = "COPY " + table + "(" + cols + ") FROM STDIN";
+		insertSQL = "INSERT INTO " + table + "(" + cols + ") VALUES(" + params + ") ON CONFLICT DO NOTHING";
+	}
+
+	public void setParent(BulkLoader parent) {
+		this.parent = parent;
+	}
+
+	/**
+	 * Skips rows whose values in the given columns were already added to this loader.
+	 */
+	public void setUniqueKey(String... keyColumns) {
+
+		keyIndexes = new int[keyColumns.length];
+
+		for (int k=0; k<keyColumns.length; k++) {
+			keyIndexes[k] = -1;
+			for (int i=0; i<columns.length; i++)
+				if (columns[i].equals(keyColumns[k]))
+					keyIndexes[k] = i;
+			if (keyIndexes[k] < 0)
+				throw new IllegalArgumentException(table + ": unknown key column " + keyColumns[k]);
+		}
+		keys = new HashSet<>();
+
+		//ON CONFLICT needs the key to be the primary key of the relation
+		if (LoadPhase.isIncremental()) {
+			List<String> pk = LoadPhase.getPrimaryKeyColumns(table);
+			if (pk != null && new HashSet<>(pk).equals(new HashSet<>(Arrays.asList(keyColumns))))
+				setMerge(keyColumns);
+		}
+	}
+
+	//Upsert on the key, changing existing rows only when their values differ
+	private void setMerge(String[] keyColumns) {
+
+		List<String> keyList = Arrays.asList(keyColumns);
+		List<String> set = new ArrayList<>();
+		List<String> current = new ArrayList<>();
+		List<String> excluded = new ArrayList<>();
+
+		for (String column : columns) {
+			if (keyList.contains(column))
+				continue;
+			set.add(column + " = EXCLUDED." + column);
+			current.add(table + "." + column);
+			excluded.add("EXCLUDED." + column);
+		}
+
+		String cols = String.join(", ", columns);
+		String conflict = " ON CONFLICT (" + String.join(", ", keyColumns) + ") ";
+		String action = set.isEmpty() ? "DO NOTHING" : "DO UPDATE SET " + String.join(", ", set)
+				+ " WHERE (" + String.join(", ", current) + ") IS DISTINCT FROM (" + String.join(", ", excluded) + ")";
+
+		mergeSQL = "INSERT INTO " + table + "(" + cols + ") SELECT " + cols + " FROM merge_" + table + conflict + action;
+		insertSQL = insertSQL.substring(0, insertSQL.indexOf(" ON CONFLICT")) + conflict + action;
+	}
+
+	public void addRow(Object... values) {
+
+		if (values.length != columns.length)
+			throw new IllegalArgumentException(table + ": expected " + columns.length + " values, got " + values.length);
+
+		if (keys != null && !keys.add(getKey(values))) {
+			countDuplicate(1);
+			return;
+		}
+
+		buffer.add(values);
+
+		for (Object v : values)
+			if (v instanceof String)
+				bufferChars += ((String) v).length();
+			else if (v instanceof byte[])
+				bufferChars += ((byte[]) v).length * 2;
+
+		if (buffer.size() >= flushSize || bufferChars >= flushChars)
+			flush();
+	}
+
+	public void flush() {
+
+		if (parent != null)
+			parent.flush();
+
+		if (buffer.isEmpty())
+			return;
+
+		List<Object[]> rows = buffer;
+		buffer = new ArrayList<>(Math.min(flushSize, 10000));
+		bufferChars = 0;
+
+		getWriter().submit(() -> write(rows));
+	}
+
+	public void close() {
+		flush();
+		getWriter().await();
+	}
+
+	//Loaders with a parent share its writer, so that the parent's rows are always written first
+	private synchronized WriteBehind getWriter() {
+
+		if (parent != null)
+			return parent.getWriter();
+
+		if (writer == null)
+			writer = new WriteBehind(table);
+
+		return writer;
+	}
+
+	private void write(List<Object[]> rows) {
+
+		long t1 = System.nanoTime();
+
+		try (Connection conn = ConnectDB.connect()) {
+
+			if (mergeSQL == null) {
+				count(Storage.get().write(conn, table, columns, rows));
+				ColumnarExport.add(table, columns, rows);
+				return;
+			}
+
+			//Incremental mode: copy into a temporary table and merge it into the relation
+			CopyManager cm = conn.unwrap(PGConnection.class).getCopyAPI();
+			conn.setAutoCommit(false);
+			try (Statement stmt = conn.createStatement()) {
+				stmt.execute("CREATE TEMP TABLE merge_" + table + " ON COMMIT DROP AS SELECT "
+						+ String.join(", ", columns) + " FROM " + table + " WITH NO DATA");
+				long n = cm.copyIn("COPY merge_" + table + " FROM STDIN", new StringReader(encode(rows)));
+				JdbcStats.record("COPY merge_" + table + " FROM STDIN", System.nanoTime() - t1, n, false);
+				int changed = stmt.executeUpdate(mergeSQL);
+				conn.commit();
+				count(changed);
+				countUnchanged(n - changed);
+				ColumnarExport.add(table, columns, rows);
+			}
+
+		} catch (SQLException | IOException ex) {
+			JdbcStats.record(copySQL, System.nanoTime() - t1, 0, true);
+			System.out.println("Batch write into \"" + table + "\" failed (" + String.valueOf(ex.getMessage()).trim()
+					+ "); inserting " + rows.size() + " rows one by one");
+			insertRowByRow(rows);
+		} catch (RuntimeException ex) {
+			rowsFailed.addAndGet(rows.size());
+			throw ex;
+		}
+	}
+
+	public long getRowsLoaded() {
+		return rowsLoaded.get();
+	}
+
+	public long getRowsFailed() {
+		return rowsFailed.get();
+	}
+
+	public long getRowsDuplicate() {
+		return rowsDuplicate.get();
+	}
+
+	public long getRowsUnchanged() {
+		return rowsUnchanged.get();
+	}
+
+	//Insert in transactions of txSize rows, with a savepoint per row so that a rejected row
+	//(written to the quarantine file) does not abort the transaction
+	private void insertRowByRow(List<Object[]> rows) {
+
+		int done = 0;
+		long loaded = 0;
+		long duplicate = 0;
+		List<Object[]> written = new ArrayList<>();
+
+		try (Connection conn = ConnectDB.connect();
+				PreparedStatement pstmt = conn.prepareStatement(insertSQL)) {
+
+			conn.setAutoCommit(false);
+
+			for (Object[] row : rows) {
+
+				Savepoint sp = conn.setSavepoint();
+				try {
+					for (int i=0; i<row.length; i++)
+						pstmt.setObject(i+1, row[i]);
+					if (pstmt.executeUpdate() > 0) {
+						loaded++;
+						written.add(row);
+					}
+					else {
+						duplicate++;		//key already present (unchanged, in the incremental mode)
+						if (mergeSQL != null)
+							written.add(row);
+					}
+					conn.releaseSavepoint(sp);
+				} catch (SQLException ex) {
+					conn.rollback(sp);
+					rowsFailed.incrementAndGet();
+					Quarantine.add(table, columns, row, ex);
+				}
+
+				if (++done % txSize == 0 || done == rows.size()) {
+					conn.commit();
+					count(loaded);
+					ColumnarExport.add(table, columns, written);
+					written.clear();
+					if (mergeSQL == null)
+						countDuplicate(duplicate);
+					else
+						countUnchanged(duplicate);
+					loaded = 0;
+					duplicate = 0;
+				}
+			}
+
+		} catch (SQLException ex) {
+			//rows of the transaction in progress and the rows not yet tried are lost
+			System.out.println(ex.getMessage());
+			rowsFailed.addAndGet(rows.size() - done + loaded + duplicate);
+		}
+	}
+
+	private void count(long n) {
+
+		rowsLoaded.addAndGet(n);
+		rowCounters.computeIfAbsent(table, k -> new AtomicLong()).addAndGet(n);
+	}
+
+	private void countDuplicate(long n) {
+
+		rowsDuplicate.addAndGet(n);
+		duplicateCounters.computeIfAbsent(table, k -> new AtomicLong()).addAndGet(n);
+	}
+
+	private void countUnchanged(long n) {
+
+		rowsUnchanged.addAndGet(n);
+		unchangedCounters.computeIfAbsent(table, k -> new AtomicLong()).addAndGet(n);
+	}
+
+	private String getKey(Object[] values) {
+
+		if (keyIndexes.length == 1)
+			return String.valueOf(values[keyIndexes[0]]);
+
+		StringBuilder sb = new StringBuilder();
+		for (int i : keyIndexes)
+			sb.append(values[i]).append('\u0001');
+		return sb.toString();
+	}
+
+	//Encode rows in the text format of COPY
+	static String encode(List<Object[]> rows) {
+
+		StringBuilder sb = new StringBuilder(rows.isEmpty() ? 16 : rows.size() * 16 * rows.get(0).length);
+
+		for (Object[] row : rows) {
+			for (int i=0; i<row.length; i++) {
+				if (i > 0)
+					sb.append('\t');
+				appendValue(sb, row[i]);
+			}
+			sb.append('\n');
+		}
+		return sb.toString();
+	}
+
+	public static void appendValue(StringBuilder sb, Object value) {
+
+		if (value == null) {
+			sb.append("\\N");
+			return;
+		}
+
+		//bytea in hex format, its backslash escaped
+		if (value instanceof byte[]) {
+			sb.append("\\\\x");
+			for (byte b : (byte[]) value)
+				sb.append(HEX[(b >> 4) & 15]).append(HEX[b & 15]);
+			return;
+		}
+
+		String s = value.toString();
+
+		for (int i=0; i<s.length(); i++) {
+			char c = s.charAt(i);
+			switch (c) {
+				case '\\': sb.append("\\\\"); break;
+				case '\t': sb.append("\\t"); break;
+				case '\n': sb.append("\\n"); break;
+				case '\r': sb.append("\\r"); break;
+				default:   sb.append(c);
+			}
+		}
+	}
+
+	public static Map<String, Long> getRowCounters() {
+
+		Map<String, Long> map = new TreeMap<>();
+
+		for (Map.Entry<String, AtomicLong> e : rowCounters.entrySet())
+			map.put(e.getKey(), e.getValue().get());
+
+		return map;
+	}
+
+	public static void printRowCounters() {
+
+		for (Map.Entry<String, Long> e : getRowCounters().entrySet()) {
+
+			List<String> notes = new ArrayList<>();
+			AtomicLong duplicates = duplicateCounters.get(e.getKey());
+			AtomicLong unchanged = unchangedCounters.get(e.getKey());
+			if (duplicates != null)
+				notes.add(duplicates.get() + " duplicates skipped");
+			if (unchanged != null)
+				notes.add(unchanged.get() + " unchanged");
+
+			System.out.printf("Rows loaded into \"%s\": %d%s%n", e.getKey(), e.getValue(),
+					notes.isEmpty() ? "" : " (" + String.join(", ", notes) + ")");
+		}
+	}
+
+}
@@ -0,0 +1,259 @@
+package util;
+
+import java.io.File;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.duckdb.DuckDBAppender;
+import org.duckdb.DuckDBConnection;
+
+/**
+ * This class exports relations of TAGOPSIN as Parquet files, for analytics tools (e.g. Spark
+ * or pandas) that would otherwise read them back from PostgreSQL. The rows written by the
+ * loaders (see class BulkLoader.java) are appended, once written, to the same relations
+ * in an embedded DuckDB database, where the staged updates of class StagedUpdate.java are
+ * applied as well; at the end of the run each relation is written to <relation>.parquet.
+ *
+ * The Parquet files are compressed with ZSTD, repeated strings are dictionary-encoded, and
+ * each row group carries min/max and null count statistics, so that readers can skip row
+ * groups. The DuckDB driver JAR is downloaded and extracted at startup (see class
+ * MainProgram.java). The export runs alongside the database loaders and does not replace
+ * them: the registries, key allocators and staged updates of the load still read and write a
+ * database, which is the embedded one (see class H2Storage.java) when no PostgreSQL server is
+ * at hand.
+ *
+ * Settings (system properties): tagopsin.export.dir (the export is off unless it is set),
+ * tagopsin.export.tables (comma-separated relations) and tagopsin.export.rowGroupSize (rows
+ * per row group). Columns filled by the database itself (e.g. cds_ntseq.ntsid) are empty.
+ *
+ * @since	2026-10-17
+ * @version	1.0
+ *
+ */
+
+public class ColumnarExport {
+
+	public static final String JAR = "duckdb_jdbc-1.1.3.jar";
+	public static final String JAR_URL = "https://repo1.maven.org/maven2/org/duckdb/duckdb_jdbc/1.1.3/" + JAR;
+
+	private static final String DEFAULT_TABLES = "cds,cds_ntseq,protein,protein2go,protein2pfam,protein2pdb,pdb_chain,go,go_parent,aa_seq";
+
+	private static final Pattern CREATE_DOMAIN = Pattern.compile("CREATE DOMAIN (\\w+) AS (\\w+)");
+	private static final Pattern CREATE_TABLE = Pattern.compile("CREATE TABLE (\\w+)\\(([^;]*)\\)", Pattern.DOTALL);
+
+	private static final String dir = Config.getString("tagopsin.export.dir", null);
+	private static final Set<String> tables = new HashSet<>(Arrays.asList(
+			Config.getString("tagopsin.export.tables", DEFAULT_TABLES).split("\\s*,\\s*")));
+
+	private static DuckDBConnection conn = null;
+
+	//columns of each relation (and staging table) in the export database, in table order
+	private static final Map<String, String[]> schema = new LinkedHashMap<>();
+	private static final Map<String, DuckDBAppender> appenders = new HashMap<>();
+	private static final Map<String, AtomicLong> stageSeq = new HashMap<>();
+
+	public static boolean isEnabled() {
+		return dir != null;
+	}
+
+	/**
+	 * Appends a batch of rows given for the named columns of a relation; columns of the
+	 * relation that are not given are left empty.
+	 */
+	public static synchronized void add(String table, String[] columns, List<Object[]> rows) {
+
+		if (!isEnabled() || !getSchema().containsKey(table))
+			return;
+
+		String[] tableColumns = schema.get(table);
+		List<String> given = Arrays.asList(columns);
+		AtomicLong seq = stageSeq.get(table);
+
+		try {
+			DuckDBAppender appender = appenders.get(table);
+			if (appender == null) {
+				appender = conn.createAppender(DuckDBAppender.DEFAULT_SCHEMA, table);
+				appenders.put(table, appender);
+			}
+
+			for (Object[] row : rows) {
+				appender.beginRow();
+				for (String column : tableColumns) {
+					int i = given.indexOf(column);
+					if (i >= 0 && row[i] instanceof byte[])
+						appender.append((byte[]) row[i]);
+					else if (i >= 0)
+						appender.append(row[i] == null ? (String) null : row[i].toString());
+					else if (seq != null && column.equals("seq"))
+						appender.append(String.valueOf(seq.incrementAndGet()));
+					else
+						appender.append((String) null);
+				}
+				appender.endRow();
+			}
+
+		} catch (SQLException ex) {
+			System.out.println("Export of \"" + table + "\" failed: " + ex.getMessage());
+		}
+	}
+
+	//Staging table of class StagedUpdate.java, numbering the staged tuples in column "seq"
+	public static synchronized void createStage(String stage, String... definitions) {
+
+		if (!isEnabled())
+			return;
+
+		getSchema();
+
+		String[] columns = new String[definitions.length + 1];
+		columns[0] = "seq";
+		for (int i=0; i<definitions.length; i++)
+			columns[i+1] = definitions[i].trim().split("\\s+")[0];
+
+		execute("CREATE OR REPLACE TABLE " + stage + "(seq bigint, " + String.join(", ", definitions) + ")");
+		schema.put(stage, columns);
+		stageSeq.put(stage, new AtomicLong());
+	}
+
+	/**
+	 * Applies the tuples of a staging table to an exported relation (see method apply() of
+	 * class StagedUpdate.java), then drops the staging table.
+	 */
+	public static synchronized void applyStage(String table, String stage, String[] keys, String[] columns,
+			boolean keepLast, String condition) {
+
+		if (!isEnabled() || !schema.containsKey(stage))
+			return;
+
+		closeAppender(stage);
+
+		//DuckDB accepts the UPDATE ... FROM and DISTINCT ON of PostgreSQL
+		if (schema.containsKey(table)) {
+			closeAppender(table);
+			execute(PostgreSQLStorage.INSTANCE.getStagedUpdateSQL(table, stage, keys, columns, keepLast, condition));
+		}
+
+		execute("DROP TABLE " + stage);
+		schema.remove(stage);
+		stageSeq.remove(stage);
+	}
+
+	//Write each exported relation to a Parquet file and remove the export database
+	public static synchronized void finish() {
+
+		if (!isEnabled() || conn == null)
+			return;
+
+		int rowGroupSize = Math.max(1, Config.getInt("tagopsin.export.rowGroupSize", 122880));
+
+		for (String table : new ArrayList<>(appenders.keySet()))
+			closeAppender(table);
+
+		for (String table : schema.keySet()) {
+
+			File file = new File(dir, table + ".parquet");
+			long t1 = System.nanoTime();
+
+			execute("COPY " + table + " TO '" + file.getPath().replace("'", "''")
+					+ "' (FORMAT PARQUET, COMPRESSION ZSTD, ROW_GROUP_SIZE " + rowGroupSize + ")");
+
+			System.out.printf("Exported \"%s\" to %s (%.1f MB, %.1f s)\n", table, file.getPath(),
+					file.length() / 1048576.0, (System.nanoTime() - t1)*1e-9);
+		}
+
+		try {
+			conn.close();
+		} catch (SQLException ex) {
+			System.out.println(ex.getMessage());
+		}
+		conn = null;
+
+		new File(dir, "export.duckdb").delete();
+		new File(dir, "export.duckdb.wal").delete();
+	}
+
+	//Open the export database and create the exported relations on first use
+	private static Map<String, String[]> getSchema() {
+
+		if (conn != null)
+			return schema;
+
+		new File(dir).mkdirs();
+		new File(dir, "export.duckdb").delete();
+		new File(dir, "export.duckdb.wal").delete();
+
+		try {
+			conn = (DuckDBConnection) DriverManager.getConnection("jdbc:duckdb:" + new File(dir, "export.duckdb").getPath());
+		} catch (SQLException ex) {
+			throw new IllegalStateException("Unable to open the export database: " + ex.getMessage(), ex);
+		}
+
+		String ddl = SQL_DDL.getSQL();
+
+		//Domains are replaced by their base types, and serial columns by integer ones
+		Map<String, String> types = new HashMap<>();
+		types.put("serial", "integer");
+		Matcher domain = CREATE_DOMAIN.matcher(ddl);
+		while (domain.find())
+			types.put(domain.group(1), domain.group(2).equals("char") ? "varchar" : domain.group(2));
+
+		Matcher create = CREATE_TABLE.matcher(ddl);
+		while (create.find()) {
+
+			String table = create.group(1);
+			if (!tables.contains(table))
+				continue;
+
+			List<String> columns = new ArrayList<>();
+			List<String> definitions = new ArrayList<>();
+
+			for (String line : create.group(2).split(",")) {
+				String[] tokens = line.trim().split("\\s+");
+				String type = types.containsKey(tokens[1]) ? types.get(tokens[1]) : tokens[1];
+				columns.add(tokens[0]);
+				definitions.add(tokens[0] + " " + type);
+			}
+
+			execute("CREATE TABLE " + table + "(" + String.join(", ", definitions) + ")");
+			schema.put(table, columns.toArray(new String[columns.size()]));
+		}
+
+		return schema;
+	}
+
+	private static void closeAppender(String table) {
+
+		DuckDBAppender appender = appenders.remove(table);
+
+		if (appender == null)
+			return;
+
+		try {
+			appender.close();
+		} catch (SQLException ex) {
+			System.out.println("Export of \"" + table + "\" failed: " + ex.getMessage());
+		}
+	}
+
+	private static void execute(String SQL) {
+
+		try (Statement stmt = conn.createStatement()) {
+			stmt.execute(SQL);
+		} catch (SQLException ex) {
+			System.out.println(ex.getMessage());
+		}
+	}
+
+}
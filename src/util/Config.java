@@ -0,0 +1,65 @@
+package util;
+
+/**
+ * This class gives access to the optional load settings of TAGOPSIN. Settings are passed
+ * as Java system properties (e.g. "java -Dtagopsin.pool.size=12 -jar tagopsin.jar") and
+ * fall back to default values when absent or malformed.
+ *
+ * @since	2026-10-17
+ * @version	1.0
+ *
+ */
+
+public class Config {
+
+	public static String getString(String key, String defaultValue) {
+
+		String value = System.getProperty(key);
+
+		if (value == null || value.trim().isEmpty())
+			return defaultValue;
+
+		return value.trim();
+	}
+
+	public static int getInt(String key, int defaultValue) {
+
+		String value = getString(key, null);
+
+		if (value == null)
+			return defaultValue;
+
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			System.out.println("Invalid value \"" + value + "\" for " + key + ", using " + defaultValue);
+			return defaultValue;
+		}
+	}
+
+	public static long getLong(String key, long defaultValue) {
+
+		String value = getString(key, null);
+
+		if (value == null)
+			return defaultValue;
+
+		try {
+			return Long.parseLong(value);
+		} catch (NumberFormatException e) {
+			System.out.println("Invalid value \"" + value + "\" for " + key + ", using " + defaultValue);
+			return defaultValue;
+		}
+	}
+
+	public static boolean getBoolean(String key, boolean defaultValue) {
+
+		String value = getString(key, null);
+
+		if (value == null)
+			return defaultValue;
+
+		return value.equalsIgnoreCase("true") || value.equalsIgnoreCase("yes") || value.equals("1");
+	}
+
+}
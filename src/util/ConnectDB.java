@@ -1,38 +1,93 @@
 package util;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 import main.MainProgram;
 
 /**
- * This class establishes a connection to the PostgreSQL relational database management system.
- * 
+ * This class establishes a connection to the PostgreSQL relational database management system
+ * (or to the embedded database of another storage backend, see interface Storage.java).
+ * Connections are taken from a bounded pool (see class ConnectionPool.java) and are returned
+ * to it when closed. Statements run through them are timed (see class JdbcStats.java).
+ * The connection parameters are read when the pool is first opened (see method
+ * getConnectParam()), so that processes other than the loader can connect too.
+ *
  * @author 	Eshan Bundhoo, University of Mauritius
  * @since	2019-02-19
- * @version	1.0
+ * @version	1.1
  *
  */
 
 public class ConnectDB {
-	
-	private static ConnectParam cparam = MainProgram.access_conn_param();
-	
-	private static final String url = cparam.getUrl();
-	private static final String user = cparam.getUsername();
-	private static final String password = cparam.getPassword();
-	
+
+	//Parameters given by configure(), if any
+	private static ConnectParam cparam;
+
+	private static ConnectionPool pool;
+
+	/**
+	 * Sets the connection parameters of a process not started by MainProgram (e.g. code
+	 * reading the database through class Repository.java); connections taken afterwards use
+	 * them.
+	 */
+	public static synchronized void configure(String url, String user, String password) {
+
+		shutdown();
+		cparam = new ConnectParam(url, user, password);
+	}
+
 	public static Connection connect() {
-		
+
 		Connection conn = null;
+		long t1 = System.nanoTime();
 		try {
-			conn = DriverManager.getConnection(url, user, password);
+			conn = getPool().getConnection();
+			JdbcStats.recordAcquire(System.nanoTime() - t1, false);
 		} catch (SQLException e) {
+			JdbcStats.recordAcquire(System.nanoTime() - t1, true);
 			System.out.println(e.getMessage());
 		}
-		
-		return conn;
+
+		return InstrumentedConnection.wrap(conn);
+	}
+
+	public static synchronized ConnectionPool getPool() {
+
+		if (pool == null) {
+			ConnectParam param = getConnectParam();
+			pool = new ConnectionPool(param.getUrl(), param.getUsername(), param.getPassword());
+		}
+
+		return pool;
+	}
+
+	/**
+	 * Parameters given by configure(), else those entered when MainProgram started, else the
+	 * system properties tagopsin.db.url, tagopsin.db.user and tagopsin.db.password.
+	 */
+	private static ConnectParam getConnectParam() {
+
+		if (cparam != null)
+			return cparam;
+
+		if (MainProgram.access_conn_param() != null)
+			return MainProgram.access_conn_param();
+
+		String url = Config.getString("tagopsin.db.url", null);
+		if (url == null)
+			throw new IllegalStateException("No database connection parameters: call ConnectDB.configure() "
+					+ "or set tagopsin.db.url, tagopsin.db.user and tagopsin.db.password");
+
+		return new ConnectParam(url, Config.getString("tagopsin.db.user", null), System.getProperty("tagopsin.db.password", ""));
+	}
+
+	public static synchronized void shutdown() {
+
+		if (pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
 	}
 
 }
@@ -0,0 +1,451 @@
+package util;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class is a bounded pool of reusable connections to PostgreSQL. Connections handed out
+ * by the pool are wrappers: calling close() returns the physical connection to the pool, and
+ * prepared statements are cached per physical connection and reused by SQL text. Idle
+ * connections are evicted after a timeout, and connections that are held for too long or
+ * never closed are reported (and reclaimed once unreachable), with the stack trace of the
+ * caller that acquired them if tagopsin.pool.leakTrace is set; the trace is captured on every
+ * acquisition, so it is off by default.
+ *
+ * Settings (system properties): tagopsin.pool.size, tagopsin.pool.statementCache,
+ * tagopsin.pool.idleTimeout, tagopsin.pool.leakThreshold and tagopsin.pool.acquireTimeout
+ * (all times in milliseconds), and tagopsin.pool.leakTrace.
+ *
+ * @since	2026-10-17
+ * @version	1.0
+ *
+ */
+
+public class ConnectionPool {
+
+	private final String url;
+	private final String user;
+	private final String password;
+
+	private final int maxSize;
+	private final int stmtCacheSize;
+	private final long idleTimeout;
+	private final long leakThreshold;
+	private final long acquireTimeout;
+	private final boolean leakTrace;
+
+	private final Semaphore permits;
+	private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+	private final Map<PooledConnection, Lease> leased = new ConcurrentHashMap<>();
+	private final ScheduledExecutorService housekeeper;
+	private volatile boolean shutdown = false;
+
+	//Statistics
+	private final AtomicLong created = new AtomicLong();
+	private final AtomicLong acquired = new AtomicLong();
+	private final AtomicLong evicted = new AtomicLong();
+	private final AtomicLong leaksReported = new AtomicLong();
+	private final AtomicLong leaksReclaimed = new AtomicLong();
+	private final AtomicLong waitNanos = new AtomicLong();
+	private final AtomicLong maxWaitNanos = new AtomicLong();
+	private final AtomicLong stmtHits = new AtomicLong();
+	private final AtomicLong stmtMisses = new AtomicLong();
+
+	public ConnectionPool(String url, String user, String password) {
+
+		this.url = url;
+		this.user = user;
+		this.password = password;
+
+		maxSize = Math.max(1, Config.getInt("tagopsin.pool.size", 8));
+		stmtCacheSize = Math.max(0, Config.getInt("tagopsin.pool.statementCache", 32));
+		idleTimeout = Config.getLong("tagopsin.pool.idleTimeout", 300000);
+		leakThreshold = Config.getLong("tagopsin.pool.leakThreshold", 300000);
+		acquireTimeout = Config.getLong("tagopsin.pool.acquireTimeout", 120000);
+		leakTrace = Config.getBoolean("tagopsin.pool.leakTrace", false);
+
+		permits = new Semaphore(maxSize, true);
+
+		housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "tagopsin-pool-housekeeper");
+			t.setDaemon(true);
+			return t;
+		});
+
+		long period = Math.max(1000, Math.min(idleTimeout, leakThreshold) / 2);
+		housekeeper.scheduleWithFixedDelay(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	public Connection getConnection() throws SQLException {
+
+		if (shutdown)
+			throw new SQLException("Connection pool has been shut down");
+
+		long t1 = System.nanoTime();
+
+		try {
+			if (!permits.tryAcquire(acquireTimeout, TimeUnit.MILLISECONDS))
+				throw new SQLException("Timed out after " + acquireTimeout + " ms waiting for a database connection ("
+						+ leased.size() + " of " + maxSize + " in use)");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a database connection");
+		}
+
+		long wait = System.nanoTime() - t1;
+		waitNanos.addAndGet(wait);
+		maxWaitNanos.accumulateAndGet(wait, Math::max);
+
+		PooledConnection pc;
+
+		try {
+			//Reuse the most recently returned connection if it is still usable
+			while ((pc = idle.pollFirst()) != null) {
+				if (pc.isUsable())
+					break;
+				pc.closePhysical();
+				evicted.incrementAndGet();
+			}
+			if (pc == null) {
+				pc = new PooledConnection(DriverManager.getConnection(url, user, password));
+				created.incrementAndGet();
+			}
+		} catch (SQLException e) {
+			permits.release();
+			throw e;
+		}
+
+		acquired.incrementAndGet();
+
+		Lease lease = new Lease(pc);
+		Connection handle = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, lease);
+		lease.handle = new WeakReference<>(handle);
+		leased.put(pc, lease);
+
+		return handle;
+	}
+
+	private void release(PooledConnection pc, Lease lease) {
+
+		if (leased.remove(pc) != lease)
+			return;
+
+		boolean reusable = !shutdown;
+
+		try {
+			lease.closeUnmanagedStatements();
+			pc.releaseCachedStatements();
+			if (!pc.conn.getAutoCommit()) {
+				pc.conn.rollback();
+				pc.conn.setAutoCommit(true);
+			}
+			pc.conn.clearWarnings();
+		} catch (SQLException e) {
+			reusable = false;
+		}
+
+		if (reusable) {
+			pc.lastUsed = System.currentTimeMillis();
+			idle.offerFirst(pc);
+		}
+		else
+			pc.closePhysical();
+
+		permits.release();
+	}
+
+	private void housekeep() {
+
+		long now = System.currentTimeMillis();
+
+		//Evict connections that have been idle for too long (oldest are at the tail)
+		Iterator<PooledConnection> it = idle.descendingIterator();
+		while (it.hasNext()) {
+			PooledConnection pc = it.next();
+			if (now - pc.lastUsed > idleTimeout && idle.remove(pc)) {
+				pc.closePhysical();
+				evicted.incrementAndGet();
+			}
+		}
+
+		//Detect connections that were never closed or are held for too long
+		for (Lease lease : leased.values()) {
+
+			if (lease.handle.get() == null) {
+				leaksReclaimed.incrementAndGet();
+				System.out.println("Connection pool: reclaimed a connection that was never closed");
+				if (lease.origin != null)
+					lease.origin.printStackTrace(System.out);
+				release(lease.pc, lease);
+			}
+			else if (!lease.reported && now - lease.borrowedAt > leakThreshold) {
+				lease.reported = true;
+				leaksReported.incrementAndGet();
+				System.out.printf("Connection pool: connection held for more than %d s%n", leakThreshold / 1000);
+				if (lease.origin != null)
+					lease.origin.printStackTrace(System.out);
+			}
+		}
+	}
+
+	public PoolStats getStats() {
+
+		long n = acquired.get();
+
+		return new PoolStats(maxSize, leased.size(), idle.size(), created.get(), n, evicted.get(),
+				leaksReported.get(), leaksReclaimed.get(),
+				n == 0 ? 0 : waitNanos.get() / n / 1e6, maxWaitNanos.get() / 1e6,
+				stmtHits.get(), stmtMisses.get());
+	}
+
+	public void shutdown() {
+
+		shutdown = true;
+		housekeeper.shutdownNow();
+
+		PooledConnection pc;
+		while ((pc = idle.pollFirst()) != null)
+			pc.closePhysical();
+	}
+
+	private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+
+	//Physical connection together with its prepared statement cache
+	private class PooledConnection {
+
+		private final Connection conn;
+		private final Map<String, CachedStatement> cache;
+		private volatile long lastUsed = System.currentTimeMillis();
+
+		PooledConnection(Connection conn) {
+			this.conn = conn;
+			this.cache = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+					if (size() <= stmtCacheSize || eldest.getValue().inUse)
+						return false;
+					eldest.getValue().closePhysical();
+					return true;
+				}
+			};
+		}
+
+		boolean isUsable() {
+			try {
+				if (conn.isClosed())
+					return false;
+				if (System.currentTimeMillis() - lastUsed > 30000)
+					return conn.isValid(5);
+				return true;
+			} catch (SQLException e) {
+				return false;
+			}
+		}
+
+		PreparedStatement prepare(String sql, Connection handle, Lease lease) throws SQLException {
+
+			CachedStatement cs = cache.get(sql);
+
+			if (cs != null && !cs.inUse) {
+				stmtHits.incrementAndGet();
+			}
+			else {
+				stmtMisses.incrementAndGet();
+				PreparedStatement ps = conn.prepareStatement(sql);
+				if (cs != null || stmtCacheSize == 0) {
+					//same SQL already open on this connection, or caching disabled
+					lease.track(ps);
+					return ps;
+				}
+				cs = new CachedStatement(ps);
+				cache.put(sql, cs);
+			}
+			cs.inUse = true;
+
+			return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+					new Class<?>[] { PreparedStatement.class }, new StatementHandle(cs, handle));
+		}
+
+		void releaseCachedStatements() throws SQLException {
+			for (CachedStatement cs : cache.values()) {
+				if (cs.inUse) {
+					cs.ps.clearParameters();
+					cs.inUse = false;
+				}
+			}
+		}
+
+		void closePhysical() {
+			for (CachedStatement cs : cache.values())
+				cs.closePhysical();
+			cache.clear();
+			try {
+				conn.close();
+			} catch (SQLException e) {
+				//connection already unusable
+			}
+		}
+	}
+
+	private static class CachedStatement {
+
+		private final PreparedStatement ps;
+		private volatile boolean inUse = false;
+
+		CachedStatement(PreparedStatement ps) {
+			this.ps = ps;
+		}
+
+		void closePhysical() {
+			try {
+				ps.close();
+			} catch (SQLException e) {
+				//statement already unusable
+			}
+		}
+	}
+
+	//A cached prepared statement as seen by the caller: close() only releases it
+	private static class StatementHandle implements InvocationHandler {
+
+		private final CachedStatement cs;
+		private final Connection handle;
+		private boolean closed = false;
+
+		StatementHandle(CachedStatement cs, Connection handle) {
+			this.cs = cs;
+			this.handle = handle;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+			String name = method.getName();
+
+			if (name.equals("close")) {
+				if (!closed) {
+					closed = true;
+					cs.ps.clearParameters();
+					cs.inUse = false;
+				}
+				return null;
+			}
+			if (name.equals("isClosed"))
+				return closed;
+			if (name.equals("getConnection"))
+				return handle;
+			if (name.equals("equals"))
+				return proxy == args[0];
+			if (name.equals("hashCode"))
+				return System.identityHashCode(proxy);
+			if (name.equals("toString"))
+				return cs.ps.toString();
+			if (closed)
+				throw new SQLException("Statement is closed");
+
+			return ConnectionPool.invoke(cs.ps, method, args);
+		}
+	}
+
+	//One borrowing of a pooled connection; acts as the connection handed to the caller
+	private class Lease implements InvocationHandler {
+
+		private final PooledConnection pc;
+		private final long borrowedAt = System.currentTimeMillis();
+		private final Throwable origin = leakTrace ? new Throwable("Connection acquired here") : null;
+		private final AtomicBoolean closed = new AtomicBoolean(false);
+		private final List<Statement> unmanaged = new LinkedList<>();
+		private WeakReference<Connection> handle;
+		private volatile boolean reported = false;
+
+		Lease(PooledConnection pc) {
+			this.pc = pc;
+		}
+
+		//Statements the caller has already closed are dropped, so a long lease does not keep them all
+		void track(Statement stmt) throws SQLException {
+
+			Iterator<Statement> it = unmanaged.iterator();
+			while (it.hasNext()) {
+				if (it.next().isClosed())
+					it.remove();
+			}
+			unmanaged.add(stmt);
+		}
+
+		void closeUnmanagedStatements() {
+			for (Statement stmt : unmanaged) {
+				try {
+					stmt.close();
+				} catch (SQLException e) {
+					//statement already unusable
+				}
+			}
+			unmanaged.clear();
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+			String name = method.getName();
+
+			if (name.equals("close")) {
+				if (closed.compareAndSet(false, true))
+					release(pc, this);
+				return null;
+			}
+			if (name.equals("isClosed"))
+				return closed.get();
+			if (name.equals("equals"))
+				return proxy == args[0];
+			if (name.equals("hashCode"))
+				return System.identityHashCode(proxy);
+			if (name.equals("toString"))
+				return "Pooled " + pc.conn.toString();
+			if (closed.get())
+				throw new SQLException("Connection is closed");
+
+			if (name.equals("prepareStatement") && args.length == 1)
+				return pc.prepare((String) args[0], (Connection) proxy, this);
+
+			Object result = ConnectionPool.invoke(pc.conn, method, args);
+
+			if (result instanceof Statement)
+				track((Statement) result);
+
+			return result;
+		}
+	}
+
+}
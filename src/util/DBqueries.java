@@ -1,16 +1,23 @@
 package util;
+import java.nio.ByteBuffer;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 
 /**
  * This class lists all the database queries used by TAGOPSIN.
  * 
+ * Each accessor runs a single query whose rows are streamed from a server-side cursor (the
+ * number of rows per round trip is set by the system property tagopsin.fetchSize) into a
+ * growable array, so that no row count is needed beforehand.
+ * 
  * @author 	Eshan Bundhoo and Anisah W. Ghoorah, University of Mauritius
  * @since	2020-06-18
  * @version	1.1
@@ -19,384 +26,165 @@ import java.util.Map;
 
 public class DBqueries {
 	
-	//get number of taxIDs excluding taxIDs with one-word species name
-	public static int getSpeciesCount() {
-			
-		String SQL = "SELECT COUNT (taxonomy_id) FROM organism WHERE " +
-				"array_length(string_to_array(species, ' '), 1)  > 1";
-		int count = 0;
-			
-		try (Connection conn = ConnectDB.connect();
-				Statement stmt = conn.createStatement();
-				ResultSet rs = stmt.executeQuery(SQL)) {
-			rs.next();
-			count = rs.getInt(1);
-			conn.close();
-		} catch (SQLException ex) {
-			System.out.println(ex.getMessage());
-		}
-		
-		return count;
-	}
-		
+	private static final int FETCH_SIZE = Math.max(1, Config.getInt("tagopsin.fetchSize", 10000));
+	
 	//function to retrieve list of taxIDs (excluding taxIDs with one-word species name)
 	public static int[] getTaxIDs() {
-			
-		int[] array = new int[getSpeciesCount()];
-		int i = 0;
+		
+		IntArray array = new IntArray();
 			
 		String SQL = "SELECT DISTINCT taxonomy_id FROM organism WHERE " + 
-				"array_length(string_to_array(species, ' '), 1)  > 1 AND " + 
+				"species LIKE '% %' AND " + 
 				"taxonomy_id IS NOT NULL";
-			
-		try {
-			Connection conn = ConnectDB.connect();
-			Statement stmt = conn.createStatement();
-			ResultSet rs = stmt.executeQuery(SQL);
-				 
-			while (rs.next()) {
-			    array[i] = rs.getInt(1);
-			    i++;
-			}
-			conn.close();
-		} catch (SQLException ex) {
-			System.out.println(ex.getMessage());
-		}
 		
-		Arrays.sort(array);
-		return array;		
-	}
-	
-	//get number of OIDs in Organism table
-	public static int getOidCount() {
-			
-		String SQL = "SELECT COUNT (oid) FROM organism WHERE " +
-				"array_length(string_to_array(species, ' '), 1)  > 1";
-		int count = 0;
-			
-		try (Connection conn = ConnectDB.connect();
-				Statement stmt = conn.createStatement();
-				ResultSet rs = stmt.executeQuery(SQL)) {
-			rs.next();
-			count = rs.getInt(1);
-			conn.close();
-		} catch (SQLException ex) {
-			System.out.println(ex.getMessage());
-		}
+		stream(SQL, rs -> array.add(rs.getInt(1)));
 		
-		return count;
+		return array.toSortedArray();
 	}
 	
 	//function to retrieve list of organism names from Organism table
 	public static String[] getOrgName() {
-			
-		String[] array = new String[getOidCount()];
-		int i = 0;
 		
 		String SQL = "SELECT DISTINCT species FROM organism WHERE " + 
-				"array_length(string_to_array(species, ' '), 1)  > 1";
-		
-		try {
-			Connection conn = ConnectDB.connect();
-			Statement stmt = conn.createStatement();
-			ResultSet rs = stmt.executeQuery(SQL);
-			 
-			while (rs.next()) {
-			    array[i] = rs.getString(1);
-			    i++;
-			}
-			conn.close();
-		} catch (SQLException ex) {
-			System.out.println(ex.getMessage());
-		}
+				"species LIKE '% %'";
 		
-		Arrays.sort(array);
-		return array;
+		return getSortedStrings(SQL);
 	}
 	
-	//function to retrieve list of distinct (protein_id, genome_ac) or (locus_tag, protein_id) pairs from CDS table
-	public static Map<String, HashSet<String>> getCdsProt(String orgType) {
+	//function to retrieve organism names with their OID (the lowest one if a name occurs more than once)
+	public static Map<String, Integer> getOrganismIDs() {
 		
-		Map<String, HashSet<String>> map = new HashMap<>();
+		Map<String, Integer> map = new HashMap<>();
 		
-		try {
-			String SQL = "";
-			
-			if (orgType.equalsIgnoreCase("P") || orgType.equalsIgnoreCase("V")) {
-				
-				SQL = "SELECT DISTINCT protein_id, genome_ac FROM cds "		
-					+ "WHERE protein_id IS NOT NULL "
-					+ "AND uniprot_ac IS NULL";
-			}
-			else {
-				SQL = "SELECT DISTINCT locus_tag, protein_id FROM cds "		
-					+ "WHERE protein_id IS NOT NULL "
-					+ "AND uniprot_ac IS NULL";
-			}
-			
-			Connection conn = ConnectDB.connect();
-			Statement stmt = conn.createStatement();
-			ResultSet rs = stmt.executeQuery(SQL);
-				 
-			while (rs.next()) {
-				String res1 = rs.getString(1);		//for "P" and "V": res1 = refseq protein_id, else res1 = locus_tag
-				String res2 = rs.getString(2);		//for "P" and "V": res2 = genome_ac, else res2 = refseq protein_id
-				
-				if (map.containsKey(res1)) {
-					HashSet<String> set = map.get(res1);
-					set.add(res2);
-					map.put(res1, set);
-				}
-				else {
-					HashSet<String> set = new HashSet<>();
-					set.add(res2);
-					map.put(res1, set);
-				}				
-			}
-			conn.close();
-			
-		} catch (SQLException ex) {
-			System.out.println(ex.getMessage());
-		}
+		String SQL = "SELECT species, min(oid) FROM organism WHERE species IS NOT NULL GROUP BY species";
 		
-		return map;		
+		stream(SQL, rs -> map.put(rs.getString(1), rs.getInt(2)));
+		
+		return map;
 	}
 	
-	//get number of non-null protein IDs (without an assigned UniProt AC) in CDS table
-	public static int getCdsProtIdCnt() {
+	//function to retrieve the ID of each sequence hash from table "aa_seq"
+	public static Map<ByteBuffer, Integer> getSequenceIDs() {
 		
-		String SQL = "SELECT COUNT (DISTINCT protein_id) FROM cds "		
-				+ "WHERE protein_id IS NOT NULL "
-				+ "AND uniprot_ac IS NULL";							
+		Map<ByteBuffer, Integer> map = new HashMap<>();
 		
-		int count = 0;
-			
-		try (Connection conn = ConnectDB.connect();
-				Statement stmt = conn.createStatement();
-				ResultSet rs = stmt.executeQuery(SQL)) {
-			rs.next();
-			count = rs.getInt(1);
-			conn.close();
-		} catch (SQLException ex) {
-			System.out.println(ex.getMessage());
-		}
+		String SQL = "SELECT seq_hash, seq_id FROM aa_seq";
+		
+		stream(SQL, rs -> map.put(ByteBuffer.wrap(rs.getBytes(1)), rs.getInt(2)));
 		
-		return count;
+		return map;
 	}
 	
-	//function to retrieve list of non-null protein IDs (without an assigned UniProt AC) from CDS table
-	public static String[] getCdsProtHuman() {
+	//function to retrieve the OID of each genome AC from Genome table
+	public static Map<String, Integer> getGenomeOIDs() {
 		
-		String[] array = new String[getCdsProtIdCnt()];
-		int i = 0;
+		Map<String, Integer> map = new HashMap<>();
 		
-		String SQL = "SELECT DISTINCT protein_id FROM cds "		
-				+ "WHERE protein_id IS NOT NULL "
-				+ "AND uniprot_ac IS NULL";
+		String SQL = "SELECT ac, oid FROM genome";
 		
-		try {
-			Connection conn = ConnectDB.connect();
-			Statement stmt = conn.createStatement();
-			ResultSet rs = stmt.executeQuery(SQL);
-			 
-			while (rs.next()) {
-			    array[i] = rs.getString(1);
-			    i++;
-			}
-			conn.close();
-		} catch (SQLException ex) {
-			System.out.println(ex.getMessage());
-		}
+		stream(SQL, rs -> map.put(rs.getString(1), rs.getInt(2)));
 		
-		Arrays.sort(array);
-		return array;
+		return map;
 	}
 	
-	//get number of non-null UniProt ACs in CDS table
-	public static int getCdsUniProtCnt() {
+	//function to retrieve the genome ACs of each taxonomy ID (of the organism of the genome)
+	public static Map<Integer, List<String>> getGenomesByTaxID() {
 		
-		String SQL = "SELECT COUNT (DISTINCT uniprot_ac) FROM cds "		
-				+ "WHERE uniprot_ac IS NOT NULL";							
+		Map<Integer, List<String>> map = new HashMap<>();
 		
-		int count = 0;
+		String SQL = "SELECT o.taxonomy_id, g.ac FROM genome g JOIN organism o ON o.oid = g.oid "
+				+ "WHERE o.taxonomy_id IS NOT NULL";
+		
+		stream(SQL, rs -> map.computeIfAbsent(rs.getInt(1), k -> new ArrayList<>()).add(rs.getString(2)));
+		
+		return map;
+	}
+	
+	//function to retrieve list of distinct (protein_id, genome_ac) or (locus_tag, protein_id) pairs from CDS table
+	public static Map<String, HashSet<String>> getCdsProt(String orgType) {
+		
+		Map<String, HashSet<String>> map = new HashMap<>();
+		
+		String SQL = "";
+		
+		if (orgType.equalsIgnoreCase("P") || orgType.equalsIgnoreCase("V")) {
 			
-		try (Connection conn = ConnectDB.connect();
-				Statement stmt = conn.createStatement();
-				ResultSet rs = stmt.executeQuery(SQL)) {
-			rs.next();
-			count = rs.getInt(1);
-			conn.close();
-		} catch (SQLException ex) {
-			System.out.println(ex.getMessage());
+			SQL = "SELECT DISTINCT protein_id, genome_ac FROM cds "		
+				+ "WHERE protein_id IS NOT NULL "
+				+ "AND uniprot_ac IS NULL";
+		}
+		else {
+			SQL = "SELECT DISTINCT locus_tag, protein_id FROM cds "		
+				+ "WHERE protein_id IS NOT NULL "
+				+ "AND uniprot_ac IS NULL";
 		}
 		
-		return count;	
+		//for "P" and "V": column 1 = refseq protein_id and column 2 = genome_ac, else locus_tag and refseq protein_id
+		stream(SQL, rs -> map.computeIfAbsent(rs.getString(1), k -> new HashSet<>()).add(rs.getString(2)));
+		
+		return map;		
+	}
+	
+	//function to retrieve list of non-null protein IDs (without an assigned UniProt AC) from CDS table
+	public static String[] getCdsProtHuman() {
+		
+		String SQL = "SELECT DISTINCT protein_id FROM cds "		
+				+ "WHERE protein_id IS NOT NULL "
+				+ "AND uniprot_ac IS NULL";
+		
+		return getSortedStrings(SQL);
 	}
 	
 	//function to retrieve list of non-null UniProt ACs from CDS table
 	public static String[] getCdsUniProt() {
 		
-		String[] array = new String[getCdsUniProtCnt()];
-		int i = 0;
+		List<String> list = new ArrayList<>();
 		
 		String SQL = "SELECT DISTINCT uniprot_ac FROM cds "
 				+ "WHERE uniprot_ac IS NOT NULL";
 		
-		try {
-			Connection conn = ConnectDB.connect();
-			Statement stmt = conn.createStatement();
-			ResultSet rs = stmt.executeQuery(SQL);
-			 
-			while (rs.next()) {
-				String uniprotAc = rs.getString(1);
-				if (uniprotAc.contains("-"))
-					uniprotAc = uniprotAc.split("-")[0];
-			    array[i] = uniprotAc;
-			    i++;
-			}
-			conn.close();
-		} catch (SQLException ex) {
-			System.out.println(ex.getMessage());
-		}
+		stream(SQL, rs -> {
+			String uniprotAc = rs.getString(1);
+			if (uniprotAc.contains("-"))
+				uniprotAc = uniprotAc.split("-")[0];
+			list.add(uniprotAc);
+		});
 		
+		String[] array = list.toArray(new String[list.size()]);
 		Arrays.sort(array);
 		return array;
-		
-	}
-	
-	//get number of proteins in Protein table
-	public static int getProtCount() {
-			
-		String SQL = "SELECT COUNT (uniprot_ac) FROM protein";
-		int count = 0;
-			
-		try (Connection conn = ConnectDB.connect();
-				Statement stmt = conn.createStatement();
-				ResultSet rs = stmt.executeQuery(SQL)) {
-			rs.next();
-			count = rs.getInt(1);
-			conn.close();
-		} catch (SQLException ex) {
-			System.out.println(ex.getMessage());
-		}
-		
-		return count;
 	}
 		
 	//function to retrieve list of UniProtACs from Protein table
 	public static String[] getUniProtACs() {
 		
-		String[] array = new String[getProtCount()];
-		int i = 0;
-		
 		String SQL = "SELECT uniprot_ac FROM protein";
 		
-		try {
-			Connection conn = ConnectDB.connect();
-			Statement stmt = conn.createStatement();
-			ResultSet rs = stmt.executeQuery(SQL);
-			 
-			while (rs.next()) {
-			    array[i] = rs.getString(1);
-			    i++;
-			}
-			conn.close();
-		} catch (SQLException ex) {
-			System.out.println(ex.getMessage());
-		}
-		
-		Arrays.sort(array);
-		return array;
+		return getSortedStrings(SQL);
 	}
 	
-	//get number of Pfam ACs in Protein2Pfam table
-	public static int getPfamAcCnt() {
+	//function to retrieve list of genome ACs from Genome table
+	public static String[] getGenomeACs() {
 		
-		String SQL = "SELECT COUNT (DISTINCT pfam_ac) FROM protein2pfam";		
-		int count = 0;
-			
-		try (Connection conn = ConnectDB.connect();
-				Statement stmt = conn.createStatement();
-				ResultSet rs = stmt.executeQuery(SQL)) {
-			rs.next();
-			count = rs.getInt(1);
-			conn.close();
-		} catch (SQLException ex) {
-			System.out.println(ex.getMessage());
-		}
+		String SQL = "SELECT ac FROM genome";
 		
-		return count;
+		return getSortedStrings(SQL);
 	}
 	
 	//function to retrieve list of Pfam ACs from Protein2Pfam table
 	public static String[] getPfamACs() {
 		
-		String[] array = new String[getPfamAcCnt()];
-		int i = 0;
-		
 		String SQL = "SELECT DISTINCT pfam_ac FROM protein2pfam";
 		
-		try {
-			Connection conn = ConnectDB.connect();
-			Statement stmt = conn.createStatement();
-			ResultSet rs = stmt.executeQuery(SQL);
-			 
-			while (rs.next()) {
-			    array[i] = rs.getString(1);
-			    i++;
-			}
-			conn.close();
-		} catch (SQLException ex) {
-			System.out.println(ex.getMessage());
-		}
-		
-		Arrays.sort(array);
-		return array;
-	}
-	
-	//get count distinct PDB ID from table PDB_Chain
-	public static int getNumberPdb() {
-		
-		String SQL = "SELECT COUNT (DISTINCT pdb_id) FROM pdb_chain";
-		int count = 0;
-			
-		try (Connection conn = ConnectDB.connect();
-				Statement stmt = conn.createStatement();
-				ResultSet rs = stmt.executeQuery(SQL)) {
-			rs.next();
-			count = rs.getInt(1);
-			conn.close();
-		} catch (SQLException ex) {
-			System.out.println(ex.getMessage());
-		}
-		
-		return count;	
+		return getSortedStrings(SQL);
 	}
 	
 	//function to retrieve list of PDB IDs from table PDB_Chain
 	public static String[] getPDBIDs() {
 		
-		String[] array = new String[getNumberPdb()];
-		int i = 0;
-		
 		String SQL = "SELECT DISTINCT pdb_id FROM pdb_chain";
 		
-		try {
-			Connection conn = ConnectDB.connect();
-			Statement stmt = conn.createStatement();
-			ResultSet rs = stmt.executeQuery(SQL);
-			 
-			while (rs.next()) {
-			    array[i] = rs.getString(1);
-			    i++;
-			}
-			conn.close();
-		} catch (SQLException ex) {
-			System.out.println(ex.getMessage());
-		}
-		
-		Arrays.sort(array);
-		return array;
+		return getSortedStrings(SQL);
 	}
 	
 	//function to retrieve list of distinct PDB IDs with chain label from table Protein2Pdb
@@ -406,32 +194,80 @@ public class DBqueries {
 		
 		String SQL = "SELECT DISTINCT pdb_id, chain FROM protein2pdb";
 		
-		try {
-			Connection conn = ConnectDB.connect();
-			Statement stmt = conn.createStatement();
-			ResultSet rs = stmt.executeQuery(SQL);
-			 
-			while (rs.next()) {
-				String pdbid = rs.getString(1);
-				String chain = rs.getString(2);
+		stream(SQL, rs -> map.computeIfAbsent(rs.getString(1), k -> new HashSet<>()).add(rs.getString(2)));
+		
+		return map;		
+	}
+	
+	//function to check whether a relation has a column (e.g. cds_ntseq.span, created from PostgreSQL 12 only)
+	public static boolean hasColumn(String table, String column) {
+		
+		List<String> list = new ArrayList<>();
+		
+		String SQL = "SELECT column_name FROM information_schema.columns WHERE " + 
+				"table_name = '" + table + "' AND column_name = '" + column + "'";
+		
+		stream(SQL, rs -> list.add(rs.getString(1)));
+		
+		return !list.isEmpty();
+	}
+	
+	//first column of a query as a sorted array (for binary search)
+	private static String[] getSortedStrings(String SQL) {
+		
+		List<String> list = new ArrayList<>();
+		
+		stream(SQL, rs -> list.add(rs.getString(1)));
+		
+		String[] array = list.toArray(new String[list.size()]);
+		Arrays.sort(array);
+		return array;
+	}
+	
+	private interface RowReader {
+		void read(ResultSet rs) throws SQLException;
+	}
+	
+	//run a query and pass each row to the reader as it is fetched
+	private static void stream(String SQL, RowReader reader) {
+		
+		try (Connection conn = ConnectDB.connect()) {
+			
+			//the PostgreSQL driver only fetches through a cursor inside a transaction
+			conn.setAutoCommit(false);
+			
+			try (Statement stmt = conn.createStatement()) {
+				stmt.setFetchSize(FETCH_SIZE);
 				
-				if (map.containsKey(pdbid)) {
-					HashSet<String> set = map.get(pdbid);
-					set.add(chain);
-					map.put(pdbid, set);
+				try (ResultSet rs = stmt.executeQuery(SQL)) {
+					while (rs.next())
+						reader.read(rs);
 				}
-				else {
-					HashSet<String> set = new HashSet<>();
-					set.add(chain);
-					map.put(pdbid, set);
-				}				
 			}
-			conn.close();
+			conn.commit();
+			
 		} catch (SQLException ex) {
 			System.out.println(ex.getMessage());
 		}
+	}
+	
+	//growable int array
+	private static class IntArray {
+		
+		private int[] values = new int[1024];
+		private int size = 0;
+		
+		void add(int value) {
+			if (size == values.length)
+				values = Arrays.copyOf(values, size * 2);
+			values[size++] = value;
+		}
 		
-		return map;		
+		int[] toSortedArray() {
+			int[] array = Arrays.copyOf(values, size);
+			Arrays.sort(array);
+			return array;
+		}
 	}
 
 }
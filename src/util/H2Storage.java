@@ -0,0 +1,176 @@
+package util;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * This class is an embedded storage backend (see interface Storage.java): an H2 database held
+ * in a file and run inside TAGOPSIN in its PostgreSQL compatibility mode, so that the pipeline
+ * can run (and its parsers be benchmarked) without a database server. The H2 driver JAR is
+ * downloaded and extracted like the PostgreSQL one (see class MainProgram.java).
+ *
+ * Batches of rows are inserted with batched prepared statements, staged updates are applied
+ * with MERGE, and keys, indexes and foreign keys are built one after the other at the end of
+ * the load. The fast-load, partitioned and incremental modes of class LoadPhase.java rely on
+ * PostgreSQL and are ignored. The database file is set with tagopsin.storage.h2.path (by
+ * default "h2/tagopsin" in the data directory).
+ *
+ * @since	2026-10-17
+ * @version	1.0
+ *
+ */
+
+public class H2Storage implements Storage {
+
+	public static final String JAR = "h2-2.2.224.jar";
+	public static final String JAR_URL = "https://repo1.maven.org/maven2/com/h2database/h2/2.2.224/" + JAR;
+
+	static final H2Storage INSTANCE = new H2Storage();
+
+	private static final Pattern CREATE_TABLE = Pattern.compile("CREATE TABLE (\\w+)\\(");
+	private static final Pattern SERIAL = Pattern.compile("(\\w+) serial");
+
+	private H2Storage() {
+	}
+
+	public static String getUrl(String dir) {
+
+		String path = Config.getString("tagopsin.storage.h2.path", dir + "/h2/tagopsin");
+
+		return "jdbc:h2:file:" + path + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH";
+	}
+
+	public String getName() {
+		return "H2";
+	}
+
+	public boolean isEmbedded() {
+		return true;
+	}
+
+	public long write(Connection conn, String table, String[] columns, List<Object[]> rows) throws SQLException, IOException {
+
+		String SQL = "INSERT INTO " + table + "(" + String.join(", ", columns) + ") VALUES (" 
+				+ String.join(", ", Collections.nCopies(columns.length, "?")) + ")";
+
+		conn.setAutoCommit(false);
+
+		try (PreparedStatement pstmt = conn.prepareStatement(SQL)) {
+
+			for (Object[] row : rows) {
+				for (int i=0; i<row.length; i++)
+					pstmt.setObject(i+1, row[i]);
+				pstmt.addBatch();
+			}
+			pstmt.executeBatch();
+		}
+		conn.commit();
+
+		return rows.size();
+	}
+
+	//Serial values are taken from a sequence of their own, created with the relations
+	public String getKeySQL(String table, String column) {
+		return "SELECT NEXT VALUE FOR " + table + "_" + column + "_keys FROM SYSTEM_RANGE(1, ?)";
+	}
+
+	public String getStagingTableSQL(String stage, String definitions) {
+		return "CREATE TABLE " + stage + "(seq bigserial, " + definitions + ")";
+	}
+
+	public String getStagedUpdateSQL(String table, String stage, String[] keys, String[] columns, 
+			boolean keepLast, String condition) {
+
+		List<String> set = new ArrayList<>();
+		List<String> current = new ArrayList<>();
+		List<String> staged = new ArrayList<>();
+		for (String column : columns) {
+			set.add(column + " = s." + column);
+			current.add(table + "." + column);
+			staged.add("s." + column);
+		}
+
+		List<String> on = new ArrayList<>();
+		for (String key : keys)
+			on.add(table + "." + key + " = s." + key);
+		if (condition != null)
+			on.add(condition);
+
+		return "MERGE INTO " + table + " USING (SELECT " + String.join(", ", keys) + ", " + String.join(", ", columns) 
+				+ " FROM " + stage + " WHERE seq IN (SELECT " + (keepLast ? "max" : "min") + "(seq) FROM " + stage 
+				+ " GROUP BY " + String.join(", ", keys) + ")) s ON (" + String.join(" AND ", on) + ")"
+				+ " WHEN MATCHED AND (" + String.join(", ", current) + ") IS DISTINCT FROM (" + String.join(", ", staged) + ")"
+				+ " THEN UPDATE SET " + String.join(", ", set);
+	}
+
+	//H2 has no RETURNING clause, but selects the changed rows from a data change delta table
+	public String getReturningSQL(String SQL, String table, String[] columns) {
+		return "SELECT " + String.join(", ", columns) + " FROM FINAL TABLE (" + SQL + ")";
+	}
+
+	//Create the domains and relations of class SQL_DDL.java, and a sequence for each serial column
+	public void createRelations() {
+
+		List<String> statements = new ArrayList<>();
+
+		for (String SQL : SQL_DDL.getSQL().split(";")) {
+
+			if (SQL.trim().isEmpty())
+				continue;
+			statements.add(SQL.trim());
+
+			Matcher table = CREATE_TABLE.matcher(SQL);
+			if (!table.find())
+				continue;
+
+			Matcher serial = SERIAL.matcher(SQL);
+			while (serial.find())
+				statements.add("CREATE SEQUENCE IF NOT EXISTS " + table.group(1) + "_" + serial.group(1) + "_keys");
+		}
+
+		execute(statements);
+	}
+
+	public void buildDeferred() {
+
+		List<String> statements = new ArrayList<>();
+
+		for (String[] pk : SQL_DDL.getPrimaryKeys())
+			statements.add("ALTER TABLE " + pk[0] + " ADD PRIMARY KEY (" + pk[1] + ")");
+		statements.addAll(SQL_DDL.getIndexSQL());
+		statements.addAll(SQL_DDL.getForeignKeySQL());
+		statements.add("ANALYZE");
+
+		long t1 = System.nanoTime();
+		execute(statements);
+		System.out.printf("Keys, indexes and statistics built in %.2f min\n", (System.nanoTime() - t1)*1.6667e-11);
+	}
+
+	//Run statements in order, reporting (and going past) the ones that fail
+	private static void execute(List<String> statements) {
+
+		try (Connection conn = ConnectDB.connect();
+				Statement stmt = conn.createStatement()) {
+
+			for (String SQL : statements) {
+				try {
+					stmt.execute(SQL);
+				} catch (SQLException ex) {
+					System.out.println(ex.getMessage());
+				}
+			}
+
+		} catch (SQLException ex) {
+			System.out.println(ex.getMessage());
+		}
+	}
+
+}
@@ -0,0 +1,203 @@
+package util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * This class wraps a connection so that every statement run through it is timed (see class
+ * JdbcStats.java). Statements and result sets created by the connection are wrapped as well:
+ * executions are recorded under their SQL text with the update count, and queries are
+ * charged with the rows read from their result set.
+ *
+ * @since	2026-10-17
+ * @version	1.0
+ *
+ */
+
+public class InstrumentedConnection {
+
+	public static Connection wrap(Connection conn) {
+
+		if (conn == null || !JdbcStats.isEnabled())
+			return conn;
+
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, new ConnectionHandler(conn));
+	}
+
+	private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+
+	private static class ConnectionHandler implements InvocationHandler {
+
+		private final Connection conn;
+
+		ConnectionHandler(Connection conn) {
+			this.conn = conn;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+			String name = method.getName();
+
+			if (name.equals("equals"))
+				return proxy == args[0];
+			if (name.equals("hashCode"))
+				return System.identityHashCode(proxy);
+
+			Object result = InstrumentedConnection.invoke(conn, method, args);
+
+			if (result instanceof PreparedStatement && name.startsWith("prepare"))
+				return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+						new Class<?>[] { PreparedStatement.class },
+						new StatementHandler((Statement) result, (String) args[0], proxy));
+
+			if (result instanceof Statement && name.equals("createStatement"))
+				return Proxy.newProxyInstance(Statement.class.getClassLoader(),
+						new Class<?>[] { Statement.class }, new StatementHandler((Statement) result, null, proxy));
+
+			return result;
+		}
+	}
+
+	private static class StatementHandler implements InvocationHandler {
+
+		private final Statement stmt;
+		private final String sql;
+		private final Object connection;
+		private String batch;
+
+		StatementHandler(Statement stmt, String sql, Object connection) {
+			this.stmt = stmt;
+			this.sql = sql;
+			this.connection = connection;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+			String name = method.getName();
+
+			if (name.equals("equals"))
+				return proxy == args[0];
+			if (name.equals("hashCode"))
+				return System.identityHashCode(proxy);
+			if (name.equals("getConnection"))
+				return connection;
+
+			//the batch of a plain statement is labelled with its first SQL text
+			if (sql == null && name.equals("addBatch") && batch == null)
+				batch = "(batch) " + args[0];
+			else if (name.equals("clearBatch"))
+				batch = null;
+			if (!name.startsWith("execute"))
+				return InstrumentedConnection.invoke(stmt, method, args);
+
+			//plain statements carry their SQL text as first argument
+			String text = (args != null && args.length > 0 && args[0] instanceof String) ? (String) args[0] : sql;
+			if (text == null && name.endsWith("Batch")) {
+				text = batch == null ? "(empty batch)" : batch;
+				batch = null;
+			}
+
+			long t1 = System.nanoTime();
+			Object result;
+
+			try {
+				result = InstrumentedConnection.invoke(stmt, method, args);
+			} catch (SQLException | RuntimeException ex) {
+				JdbcStats.record(text, System.nanoTime() - t1, 0, true);
+				throw ex;
+			}
+
+			long nanos = System.nanoTime() - t1;
+
+			if (result instanceof ResultSet)
+				return Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+						new Class<?>[] { ResultSet.class }, new ResultSetHandler((ResultSet) result, text, nanos, proxy));
+
+			long rows = 0;
+			if (result instanceof Integer)
+				rows = Math.max(0, (Integer) result);
+			else if (result instanceof Long)
+				rows = Math.max(0, (Long) result);
+			else if (result instanceof int[])
+				for (int n : (int[]) result)
+					rows += Math.max(0, n);
+
+			JdbcStats.record(text, nanos, rows, false);
+
+			return result;
+		}
+	}
+
+	//Counts the rows read and the time spent fetching them; recorded when the result set is closed
+	private static class ResultSetHandler implements InvocationHandler {
+
+		private final ResultSet rs;
+		private final String sql;
+		private final Object statement;
+		private long nanos;
+		private long rows = 0;
+		private boolean recorded = false;
+
+		ResultSetHandler(ResultSet rs, String sql, long nanos, Object statement) {
+			this.rs = rs;
+			this.sql = sql;
+			this.nanos = nanos;
+			this.statement = statement;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+			String name = method.getName();
+
+			if (name.equals("equals"))
+				return proxy == args[0];
+			if (name.equals("hashCode"))
+				return System.identityHashCode(proxy);
+			if (name.equals("getStatement"))
+				return statement;
+
+			if (name.equals("next")) {
+				long t1 = System.nanoTime();
+				boolean hasNext = (Boolean) InstrumentedConnection.invoke(rs, method, args);
+				nanos += System.nanoTime() - t1;
+				if (hasNext)
+					rows++;
+				else
+					record();
+				return hasNext;
+			}
+
+			if (name.equals("close"))
+				record();
+
+			return InstrumentedConnection.invoke(rs, method, args);
+		}
+
+		private void record() {
+
+			if (!recorded) {
+				recorded = true;
+				JdbcStats.record(sql, nanos, rows, false);
+			}
+		}
+	}
+
+}
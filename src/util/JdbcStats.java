@@ -0,0 +1,151 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class collects statistics on the SQL statements run by TAGOPSIN: for each statement
+ * text, the number of executions, a latency histogram, the rows affected (or read, for
+ * queries) and the number of errors, plus the time spent waiting for a connection. They are
+ * recorded by the connections handed out by ConnectDB (see class InstrumentedConnection.java)
+ * and by the COPY operations of BulkLoader, and printed at the end of a run.
+ *
+ * Latencies are counted in power-of-two buckets of microseconds, so percentiles are upper
+ * bounds within a factor of two. Recording can be switched off with the system property
+ * tagopsin.jdbc.stats, and tagopsin.jdbc.statsTop sets how many statements are printed.
+ *
+ * @since	2026-10-17
+ * @version	1.0
+ *
+ */
+
+public class JdbcStats {
+
+	private static final int BUCKETS = 40;
+	private static final int MAX_SQL_LENGTH = 90;
+	private static final int MAX_CACHED_TEXTS = 10000;
+
+	private static final boolean enabled = Config.getBoolean("tagopsin.jdbc.stats", true);
+	private static final Map<String, StatementStats> statements = new ConcurrentHashMap<>();
+	private static final Map<String, String> normalized = new ConcurrentHashMap<>();
+	private static final StatementStats acquire = new StatementStats("(connection acquire)");
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	public static void record(String sql, long nanos, long rows, boolean error) {
+
+		if (!enabled)
+			return;
+
+		String key = normalize(sql == null ? "(unknown statement)" : sql);
+		statements.computeIfAbsent(key, StatementStats::new).add(nanos, rows, error);
+	}
+
+	public static void recordAcquire(long nanos, boolean error) {
+
+		if (enabled)
+			acquire.add(nanos, 0, error);
+	}
+
+	public static void print() {
+
+		if (!enabled || statements.isEmpty())
+			return;
+
+		List<StatementStats> list = new ArrayList<>(statements.values());
+		list.sort((a, b) -> Long.compare(b.totalNanos.get(), a.totalNanos.get()));
+
+		int top = Math.max(1, Config.getInt("tagopsin.jdbc.statsTop", 25));
+
+		System.out.println("SQL statements by total time (ms; percentiles are bucket upper bounds):");
+		System.out.printf("%10s %10s %8s %8s %8s %8s %8s %12s %7s  %s%n",
+				"calls", "total", "mean", "p50", "p95", "p99", "max", "rows", "errors", "statement");
+
+		for (int i=0; i<list.size() && i<top; i++)
+			list.get(i).print();
+
+		if (list.size() > top)
+			System.out.printf("(%d more statements)%n", list.size() - top);
+
+		acquire.print();
+	}
+
+	//Collapse white space, so that one statement text is one entry; the normalized text of
+	//each statement is kept, as the same texts are recorded over and over
+	private static String normalize(String sql) {
+
+		String s = normalized.get(sql);
+
+		if (s == null) {
+			s = sql.replaceAll("\\s+", " ").trim();
+			if (normalized.size() < MAX_CACHED_TEXTS)
+				normalized.put(sql, s);
+		}
+
+		return s;
+	}
+
+	//Statement text as printed, truncated
+	private static String label(String sql) {
+		return sql.length() > MAX_SQL_LENGTH ? sql.substring(0, MAX_SQL_LENGTH - 3) + "..." : sql;
+	}
+
+	private static class StatementStats {
+
+		private final String sql;
+		private final AtomicLong calls = new AtomicLong();
+		private final AtomicLong totalNanos = new AtomicLong();
+		private final AtomicLong maxNanos = new AtomicLong();
+		private final AtomicLong rows = new AtomicLong();
+		private final AtomicLong errors = new AtomicLong();
+		private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+		StatementStats(String sql) {
+			this.sql = label(sql);
+		}
+
+		void add(long nanos, long n, boolean error) {
+
+			calls.incrementAndGet();
+			totalNanos.addAndGet(nanos);
+			maxNanos.accumulateAndGet(nanos, Math::max);
+			rows.addAndGet(n);
+			if (error)
+				errors.incrementAndGet();
+
+			long micros = Math.max(1, nanos / 1000);
+			histogram.incrementAndGet(Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros)));
+		}
+
+		//Upper bound (ms) of the bucket holding the given fraction of calls
+		double percentile(double fraction) {
+
+			long n = calls.get();
+			long target = (long) Math.ceil(n * fraction);
+			long seen = 0;
+
+			for (int i=0; i<BUCKETS; i++) {
+				seen += histogram.get(i);
+				if (seen >= target)
+					return Math.pow(2, i + 1) / 1000;
+			}
+			return maxNanos.get() / 1e6;
+		}
+
+		void print() {
+
+			long n = calls.get();
+
+			System.out.printf("%10d %10.1f %8.3f %8.3f %8.3f %8.3f %8.1f %12d %7d  %s%n", n, totalNanos.get() / 1e6,
+					n == 0 ? 0 : totalNanos.get() / 1e6 / n, percentile(0.5), percentile(0.95), percentile(0.99),
+					maxNanos.get() / 1e6, rows.get(), errors.get(), sql);
+		}
+	}
+
+}
@@ -0,0 +1,83 @@
+package util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * This class hands out values of a serial column on the client side. Values are taken from
+ * the column's sequence in blocks (one round trip per block), so that rows referencing each
+ * other (e.g. "cds" and "cds_ntseq") can be written together in one COPY stream without
+ * reading the key back from the database. It is safe to share between threads and between
+ * concurrent loads, since every value comes from a database sequence (see interface
+ * Storage.java).
+ *
+ * A RangePartitioner can be attached so that the partitions for a block of values exist
+ * before any value of the block is used.
+ *
+ * The block size is set by the system property tagopsin.keys.blockSize.
+ *
+ * @since	2026-10-17
+ * @version	1.0
+ *
+ */
+
+public class KeyAllocator {
+
+	private final String table;
+	private final String column;
+	private final int blockSize;
+
+	private int[] block = new int[0];
+	private int next = 0;
+	private RangePartitioner partitioner = null;
+
+	public KeyAllocator(String table, String column) {
+
+		this.table = table;
+		this.column = column;
+		this.blockSize = Math.max(1, Config.getInt("tagopsin.keys.blockSize", 1000));
+	}
+
+	public void setPartitioner(RangePartitioner partitioner) {
+		this.partitioner = partitioner;
+	}
+
+	public synchronized int nextId() {
+
+		if (next == block.length) {
+			block = allocate(blockSize);
+			next = 0;
+			if (partitioner != null)
+				partitioner.cover(Arrays.stream(block).min().getAsInt(), Arrays.stream(block).max().getAsInt());
+		}
+		return block[next++];
+	}
+
+	private int[] allocate(int n) {
+
+		String SQL = Storage.get().getKeySQL(table, column);
+
+		int[] array = new int[n];
+		int i = 0;
+
+		try (Connection conn = ConnectDB.connect();
+				PreparedStatement pstmt = conn.prepareStatement(SQL)) {
+
+			pstmt.setInt(1, n);
+
+			try (ResultSet rs = pstmt.executeQuery()) {
+				while (rs.next())
+					array[i++] = rs.getInt(1);
+			}
+
+		} catch (SQLException ex) {
+			throw new IllegalStateException("Unable to allocate " + table + "." + column + " values: " + ex.getMessage(), ex);
+		}
+
+		return array;
+	}
+
+}
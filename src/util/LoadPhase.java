@@ -0,0 +1,348 @@
+package util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This class manages the phases of a TAGOPSIN load. Relations are created bare (see class
+ * SQL_DDL.java) and loaded without index maintenance; once the last stage has finished,
+ * primary keys and secondary indexes are built over several concurrent sessions, then the
+ * foreign keys one after the other (adding one locks both relations, so concurrent ones would
+ * only wait on each other), followed by ANALYZE.
+ *
+ * Rows with a duplicate primary key (which a keyed relation would have rejected at insert
+ * time) are removed before the key is built, keeping the first one in physical (ctid) order.
+ * That is not necessarily the row loaded first, as an updated row (e.g. by class
+ * StagedUpdate.java) moves; duplicates of a key receive the same staged updates, though.
+ *
+ * In fast-load mode (system property tagopsin.load.unlogged) relations are created UNLOGGED,
+ * so that the load writes no WAL; they are switched to LOGGED once their indexes are built,
+ * before the foreign keys. If the program ends before that point, a shutdown hook switches
+ * them to LOGGED so that the partial load is not lost in a server crash.
+ *
+ * In the partitioned mode (system property tagopsin.load.partitions, the number of hash
+ * partitions) "cds", "cds_ntseq" and "protein2pdb" are partitioned (see class SQL_DDL.java);
+ * their primary keys include the partition key, and "cds_ntseq" has no foreign key to "cds".
+ *
+ * Keys and indexes that already exist (e.g. in the incremental mode, system property
+ * tagopsin.load.incremental, where a new organism is added to a loaded database) are left as
+ * they are. Foreign keys are dropped at the start of an incremental load (see method
+ * dropForeignKeys()), as stages write rows before the rows they reference (e.g. protein2pdb
+ * before pdb_chain), and added again with the others. A genome counts as loaded once the GenBank stage has finished (see
+ * method markGenomesComplete()); the incremental mode first removes the genomes of a load
+ * that died before that point, with their rows in the other relations, and loads them again.
+ *
+ * These modes rely on PostgreSQL and are off with an embedded storage backend (see interface
+ * Storage.java), which builds its keys and indexes itself.
+ *
+ * Settings (system properties): tagopsin.build.sessions (number of concurrent sessions) and
+ * tagopsin.build.maintenanceWorkMem (memory for each index build, e.g. "512MB").
+ *
+ * @since	2026-10-17
+ * @version	1.0
+ *
+ */
+
+public class LoadPhase {
+
+	private static volatile boolean complete = false;
+
+	public static boolean isUnlogged() {
+		return !Storage.get().isEmbedded() && Config.getBoolean("tagopsin.load.unlogged", false);
+	}
+
+	public static boolean isIncremental() {
+		return !Storage.get().isEmbedded() && Config.getBoolean("tagopsin.load.incremental", false);
+	}
+
+	public static int getPartitions() {
+		return Storage.get().isEmbedded() ? 0 : Math.max(0, Config.getInt("tagopsin.load.partitions", 0));
+	}
+
+	/**
+	 * In fast-load mode, registers a shutdown hook switching the relations to LOGGED if the
+	 * program exits before buildDeferred() has done so.
+	 */
+	public static void registerAbortFallback() {
+
+		if (!isUnlogged())
+			return;
+
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			if (complete)
+				return;
+			System.out.println("Load interrupted: switching relations to LOGGED...");
+			for (String table : getStorageTables())
+				execute(single("ALTER TABLE " + table + " SET LOGGED"));
+		}));
+	}
+
+	public static void buildDeferred() {
+
+		int sessions = Math.max(1, Config.getInt("tagopsin.build.sessions", 4));
+		ExecutorService executor = Executors.newFixedThreadPool(sessions);
+
+		long t1 = System.nanoTime();
+
+		boolean partitioned = getPartitions() > 0;
+		Set<String> constraints = getConstraintNames();
+
+		//Primary keys, after removing rows with duplicate keys
+		List<List<String>> tasks = new LinkedList<>();
+		for (String[] pk : SQL_DDL.getPrimaryKeys(partitioned)) {
+			if (constraints.contains(pk[0] + "_pkey"))
+				continue;
+			List<String> task = new LinkedList<>();
+			task.add(getDeduplicateSQL(pk[0], pk[1]));
+			task.add("ALTER TABLE " + pk[0] + " ADD PRIMARY KEY (" + pk[1] + ")");
+			tasks.add(task);
+		}
+		runAll(executor, tasks);
+
+		//Secondary indexes
+		tasks = new LinkedList<>();
+		for (String SQL : SQL_DDL.getIndexSQL())
+			tasks.add(single(SQL.replaceFirst("CREATE INDEX ", "CREATE INDEX IF NOT EXISTS ")));
+		if (DBqueries.hasColumn("cds_ntseq", "span"))
+			for (String SQL : SQL_DDL.getRangeIndexSQL())
+				tasks.add(single(SQL.replaceFirst("CREATE INDEX ", "CREATE INDEX IF NOT EXISTS ")));
+		runAll(executor, tasks);
+
+		//Fast-load mode: a logged relation cannot reference an unlogged one, so all relations
+		//are switched to LOGGED before the foreign keys are added
+		if (isUnlogged()) {
+			tasks = new LinkedList<>();
+			for (String table : getStorageTables())
+				tasks.add(single("ALTER TABLE " + table + " SET LOGGED"));
+			runAll(executor, tasks);
+		}
+		complete = true;
+
+		//Foreign keys (which need the primary keys of referenced relations), one after the other
+		for (String SQL : SQL_DDL.getForeignKeySQL(partitioned))
+			if (!constraints.contains(SQL.split(" ")[5]))
+				execute(single(SQL));
+
+		//Planner statistics
+		tasks = new LinkedList<>();
+		for (String table : SQL_DDL.getTableNames())
+			tasks.add(single("ANALYZE " + table));
+		runAll(executor, tasks);
+
+		executor.shutdown();
+
+		long t2 = System.nanoTime();
+		System.out.printf("Keys, indexes and statistics built in %.2f min\n", (t2-t1)*1.6667e-11);
+	}
+
+	/**
+	 * Drops the foreign keys of an existing database before an incremental load; buildDeferred()
+	 * adds them again. A load that dies before then leaves them to be added by the next run.
+	 */
+	public static void dropForeignKeys() {
+
+		for (String SQL : SQL_DDL.getForeignKeySQL(false)) {
+			String[] words = SQL.split(" ");
+			execute(single("ALTER TABLE " + words[2] + " DROP CONSTRAINT IF EXISTS " + words[5]));
+		}
+	}
+
+	//Marks the genomes loaded so far as complete, once the rows of the GenBank stage are written
+	public static void markGenomesComplete() {
+		execute(single("UPDATE genome SET complete = true WHERE NOT complete"));
+	}
+
+	/**
+	 * Removes the genomes whose GenBank stage did not finish, and their CDS, CDS segments and
+	 * sequence chunks (children first, as the foreign keys may exist).
+	 */
+	public static void removeIncompleteGenomes() {
+
+		String incomplete = "(SELECT ac FROM genome WHERE NOT complete)";
+
+		String[] statements = {
+			"DELETE FROM cds_ntseq WHERE cdsid IN (SELECT cdsid FROM cds WHERE genome_ac IN " + incomplete + ")",
+			"DELETE FROM cds WHERE genome_ac IN " + incomplete,
+			"DELETE FROM genome_chunk WHERE genome_ac IN " + incomplete,
+			"DELETE FROM genome WHERE NOT complete"
+		};
+
+		try (Connection conn = ConnectDB.connect();
+				Statement stmt = conn.createStatement()) {
+
+			conn.setAutoCommit(false);
+
+			int genomes = 0;
+			for (String SQL : statements)
+				genomes = stmt.executeUpdate(SQL);
+
+			conn.commit();
+
+			if (genomes > 0)
+				System.out.printf("Removed %d genomes of an unfinished load, to be loaded again\n", genomes);
+
+		} catch (SQLException ex) {
+			System.out.println(ex.getMessage());
+		}
+	}
+
+	public static String getDeduplicateSQL(String table, String keys) {
+
+		//ctid is only unique within one partition
+		if (getPartitions() > 0 && Arrays.asList(SQL_DDL.getPartitionedTableNames()).contains(table))
+			return "DELETE FROM " + table + " WHERE (tableoid, ctid) IN ("
+					+ "SELECT tableoid, ctid FROM (SELECT tableoid, ctid, row_number() OVER (PARTITION BY " + keys 
+					+ " ORDER BY tableoid, ctid) AS n FROM " + table + ") d WHERE d.n > 1)";
+
+		return "DELETE FROM " + table + " WHERE ctid IN ("
+				+ "SELECT ctid FROM (SELECT ctid, row_number() OVER (PARTITION BY " + keys + " ORDER BY ctid) AS n "
+				+ "FROM " + table + ") d WHERE d.n > 1)";
+	}
+
+	/**
+	 * Returns the columns of the primary key of a relation, or null if the relation has no
+	 * primary key (e.g. before the first build of keys).
+	 */
+	public static List<String> getPrimaryKeyColumns(String table) {
+
+		String SQL = "SELECT a.attname FROM pg_index i "
+				+ "JOIN pg_attribute a ON a.attrelid = i.indrelid AND a.attnum = ANY(i.indkey) "
+				+ "WHERE i.indrelid = ?::regclass AND i.indisprimary";
+
+		List<String> columns = new LinkedList<>();
+
+		try (Connection conn = ConnectDB.connect();
+				PreparedStatement pstmt = conn.prepareStatement(SQL)) {
+
+			pstmt.setString(1, table);
+			try (ResultSet rs = pstmt.executeQuery()) {
+				while (rs.next())
+					columns.add(rs.getString(1));
+			}
+
+		} catch (SQLException ex) {
+			System.out.println(ex.getMessage());
+		}
+
+		return columns.isEmpty() ? null : columns;
+	}
+
+	private static Set<String> getConstraintNames() {
+
+		Set<String> names = new HashSet<>();
+
+		try (Connection conn = ConnectDB.connect();
+				Statement stmt = conn.createStatement();
+				ResultSet rs = stmt.executeQuery("SELECT conname FROM pg_constraint WHERE connamespace = 'public'::regnamespace")) {
+
+			while (rs.next())
+				names.add(rs.getString(1));
+
+		} catch (SQLException ex) {
+			System.out.println(ex.getMessage());
+		}
+
+		return names;
+	}
+
+	//Relations with storage: partitioned relations are replaced by their partitions
+	private static List<String> getStorageTables() {
+
+		List<String> tables = new LinkedList<>();
+		List<String> partitioned = getPartitions() > 0 ? Arrays.asList(SQL_DDL.getPartitionedTableNames()) : new LinkedList<>();
+
+		String SQL = "SELECT inhrelid::regclass::text FROM pg_inherits WHERE inhparent = ?::regclass";
+
+		try (Connection conn = ConnectDB.connect();
+				PreparedStatement pstmt = conn.prepareStatement(SQL)) {
+
+			for (String table : SQL_DDL.getTableNames()) {
+
+				if (!partitioned.contains(table)) {
+					tables.add(table);
+					continue;
+				}
+
+				pstmt.setString(1, table);
+				try (ResultSet rs = pstmt.executeQuery()) {
+					while (rs.next())
+						tables.add(rs.getString(1));
+				}
+			}
+
+		} catch (SQLException ex) {
+			System.out.println(ex.getMessage());
+		}
+
+		return tables;
+	}
+
+	private static List<String> single(String SQL) {
+
+		List<String> task = new LinkedList<>();
+		task.add(SQL);
+		return task;
+	}
+
+	//Run each task (a list of statements executed in order) in its own session, and wait for all
+	private static void runAll(ExecutorService executor, List<List<String>> tasks) {
+
+		List<Future<?>> futures = new LinkedList<>();
+
+		for (List<String> task : tasks)
+			futures.add(executor.submit(() -> execute(task)));
+
+		for (Future<?> f : futures) {
+			try {
+				f.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (ExecutionException e) {
+				System.out.println(e.getCause().getMessage());
+			}
+		}
+	}
+
+	private static void execute(List<String> task) {
+
+		String workMem = Config.getString("tagopsin.build.maintenanceWorkMem", null);
+
+		try (Connection conn = ConnectDB.connect();
+				Statement stmt = conn.createStatement()) {
+
+			if (workMem != null)
+				stmt.execute("SET maintenance_work_mem = '" + workMem.replace("'", "") + "'");
+
+			for (String SQL : task) {
+				try {
+					int count = stmt.executeUpdate(SQL);
+					if (SQL.startsWith("DELETE") && count > 0)
+						System.out.printf("Removed %d rows with a duplicate key: %s\n", count, SQL.split(" ")[2]);
+				} catch (SQLException ex) {
+					System.out.println(ex.getMessage());
+					break;
+				}
+			}
+
+			if (workMem != null)
+				stmt.execute("RESET maintenance_work_mem");
+
+		} catch (SQLException ex) {
+			System.out.println(ex.getMessage());
+		}
+	}
+
+}
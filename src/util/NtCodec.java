@@ -0,0 +1,110 @@
+package util;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class packs nucleotide sequences into 2 bits per base, for columns of type bytea
+ * ("genome_chunk.seq_packed", "genome.nt_packed" and "cds_ntseq.seq_packed") used instead of
+ * the varchar columns when tagopsin.sequence.packed is set. A packed sequence is:
+ *
+ * 		int 	length n of the sequence
+ * 		byte[] 	(n+3)/4 bytes, 4 bases per byte from the high bits (a=0, c=1, g=2, t=3)
+ * 		int 	number of exception runs
+ * 		runs 	(int position from 0, int length, byte character) for each run of a character
+ * 				other than a, c, g or t (e.g. N or another IUPAC ambiguity code, or an upper
+ * 				case base), whose bases are packed as 0
+ *
+ * (integers are big-endian). GenBank sequences are lower case with few ambiguity codes, so
+ * they take about a quarter of their text size; runs of N (e.g. gaps of scaffolds) take one
+ * exception each. The same format is decoded in SQL by function nt_decode() (see class
+ * SQL_DDL.java).
+ *
+ * @since	2026-10-17
+ * @version	1.0
+ *
+ */
+
+public class NtCodec {
+
+	private static final String BASES = "acgt";
+
+	private static final boolean enabled = Config.getBoolean("tagopsin.sequence.packed", false);
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	//Value of a varchar sequence column (null when sequences are packed)
+	public static String text(String seq) {
+		return enabled ? null : seq;
+	}
+
+	//Value of a packed sequence column (null unless sequences are packed)
+	public static byte[] pack(String seq) {
+		return enabled && seq != null ? encode(seq) : null;
+	}
+
+	public static byte[] encode(CharSequence seq) {
+
+		int n = seq.length();
+		byte[] packed = new byte[(n + 3) / 4];
+		List<int[]> runs = new ArrayList<>();
+
+		for (int i=0; i<n; i++) {
+
+			char c = seq.charAt(i);
+			int code = BASES.indexOf(c);
+
+			if (code < 0) {
+				code = 0;
+				int[] last = runs.isEmpty() ? null : runs.get(runs.size() - 1);
+				if (last != null && last[0] + last[1] == i && last[2] == c)
+					last[1]++;
+				else
+					runs.add(new int[] { i, 1, c });
+			}
+
+			packed[i >> 2] |= code << (6 - 2 * (i & 3));
+		}
+
+		ByteBuffer buf = ByteBuffer.allocate(8 + packed.length + 9 * runs.size());
+		buf.putInt(n);
+		buf.put(packed);
+		buf.putInt(runs.size());
+		for (int[] run : runs) {
+			buf.putInt(run[0]);
+			buf.putInt(run[1]);
+			buf.put((byte) run[2]);
+		}
+
+		return buf.array();
+	}
+
+	public static String decode(byte[] packed) {
+
+		if (packed == null)
+			return null;
+
+		ByteBuffer buf = ByteBuffer.wrap(packed);
+		int n = buf.getInt();
+		char[] seq = new char[n];
+
+		for (int i=0; i<n; i++)
+			seq[i] = BASES.charAt((packed[4 + (i >> 2)] >> (6 - 2 * (i & 3))) & 3);
+
+		buf.position(4 + (n + 3) / 4);
+		int runs = buf.getInt();
+
+		for (int r=0; r<runs; r++) {
+			int pos = buf.getInt();
+			int len = buf.getInt();
+			Arrays.fill(seq, pos, pos + len, (char) (buf.get() & 0xff));
+		}
+
+		return new String(seq);
+	}
+
+}
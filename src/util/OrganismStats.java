@@ -0,0 +1,230 @@
+package util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class maintains the summary statistics of each organism in relation "organism_stats"
+ * (number of genomes, CDS, CDS mapped to UniProt, proteins annotated with GO terms, Pfam
+ * domains and PDB chains, and total genome length), so that the summary of an organism is a
+ * single-row read instead of joins and aggregates over "genome", "cds" and the mapping
+ * relations.
+ *
+ * The counters are kept in memory and updated by the pipeline stages as they emit rows:
+ * genomes and CDS by class GenBank.java, CDS mapped afterwards from the rows returned by the
+ * staged update of class GenBank2UniProt.java, and annotated proteins by classes UniProt2GO.java,
+ * Pfam.java and UniProt2PDB.java. A protein is counted once per organism having a CDS with its
+ * UniProt AC (isoform suffixes removed). The counters are written once at the end of the load.
+ *
+ * In the incremental mode, counters kept in memory cannot be added to the stored ones: the
+ * proteins of an organism may have been counted by an earlier run, and the genomes of a run
+ * that died before saving are skipped without being counted. The rows of the organisms
+ * touched by the run (including those of the genomes it skipped) are recomputed instead, with
+ * one aggregate over their genomes, CDS and annotated proteins.
+ *
+ * @since	2026-10-17
+ * @version	1.0
+ *
+ */
+
+public class OrganismStats {
+
+	//columns of "organism_stats" after oid, in the order of the counters
+	private static final String[] COLUMNS = { "genomes", "cds", "cds_uniprot",
+			"proteins_go", "proteins_pfam", "proteins_pdb", "genome_length" };
+
+	private static final int GENOMES = 0, CDS = 1, CDS_UNIPROT = 2,
+			PROTEINS_GO = 3, PROTEINS_PFAM = 4, PROTEINS_PDB = 5, GENOME_LENGTH = 6;
+
+	private static final Map<Integer, long[]> counters = new HashMap<>();
+
+	private static final Map<String, Integer> genomes = new HashMap<>();			//genome AC -> OID
+	private static final Map<String, Set<Integer>> proteins = new HashMap<>();	//UniProt AC -> OIDs
+	private static final Set<String> skippedGenomes = new HashSet<>();			//loaded by earlier runs
+	private static boolean genomesLoaded = false;
+
+	//UniProt ACs already counted as annotated
+	private static final Set<String> withGo = new HashSet<>();
+	private static final Set<String> withPfam = new HashSet<>();
+	private static final Set<String> withPdb = new HashSet<>();
+
+	//Genome with the length of its sequence (null if its sequence is not stored)
+	public static synchronized void addGenome(int oid, String genomeAc, Long length) {
+
+		genomes.put(genomeAc, oid);
+
+		long[] c = get(oid);
+		c[GENOMES]++;
+		if (length != null)
+			c[GENOME_LENGTH] += length;
+	}
+
+	//Genome loaded by an earlier run and skipped by this one (incremental mode)
+	public static synchronized void addLoadedGenome(String genomeAc) {
+		skippedGenomes.add(genomeAc);
+	}
+
+	//CDS of a genome given to addGenome(), with its UniProt AC from GenBank or null
+	public static synchronized void addCds(String genomeAc, String uniprotAc) {
+
+		Integer oid = genomes.get(genomeAc);
+
+		if (oid == null)
+			return;
+
+		get(oid)[CDS]++;
+
+		if (uniprotAc != null)
+			mapCds(oid, uniprotAc);
+	}
+
+	//CDS of a genome mapped to a UniProt AC after it was loaded
+	public static synchronized void mapCds(String genomeAc, String uniprotAc) {
+
+		Integer oid = genomes.get(genomeAc);
+
+		//in the incremental mode, CDS of genomes loaded by earlier runs can be mapped as well
+		if (oid == null && LoadPhase.isIncremental()) {
+			loadStoredGenomes();
+			oid = genomes.get(genomeAc);
+		}
+
+		if (oid != null && uniprotAc != null)
+			mapCds(oid, uniprotAc);
+	}
+
+	public static synchronized void addGoAnnotation(String uniprotAc) {
+		addAnnotation(uniprotAc, withGo, PROTEINS_GO);
+	}
+
+	public static synchronized void addPfamDomain(String uniprotAc) {
+		addAnnotation(uniprotAc, withPfam, PROTEINS_PFAM);
+	}
+
+	public static synchronized void addPdbMapping(String uniprotAc) {
+		addAnnotation(uniprotAc, withPdb, PROTEINS_PDB);
+	}
+
+	/**
+	 * Writes the counters into relation "organism_stats" (in the incremental mode, recomputes
+	 * the rows of the organisms touched by the run instead).
+	 */
+	public static synchronized void save() {
+
+		if (LoadPhase.isIncremental()) {
+			recompute();
+			return;
+		}
+
+		if (counters.isEmpty())
+			return;
+
+		String[] placeholders = new String[COLUMNS.length];
+		Arrays.fill(placeholders, "?");
+
+		String SQL = "INSERT INTO organism_stats(oid, " + String.join(", ", COLUMNS) + ") "
+				+ "VALUES (?, " + String.join(", ", placeholders) + ")";
+
+		try (Connection conn = ConnectDB.connect();
+				PreparedStatement pstmt = conn.prepareStatement(SQL)) {
+
+			for (Map.Entry<Integer, long[]> e : counters.entrySet()) {
+				pstmt.setInt(1, e.getKey());
+				for (int i=0; i<COLUMNS.length; i++)
+					pstmt.setLong(i+2, e.getValue()[i]);
+				pstmt.addBatch();
+			}
+			pstmt.executeBatch();
+
+			System.out.println("Summary statistics of " + counters.size() + " organisms saved to \"organism_stats\" relation");
+
+		} catch (SQLException ex) {
+			System.out.println(ex.getMessage());
+		}
+	}
+
+	//Rows of the organisms counted in memory and of those of the skipped genomes, from the relations
+	private static void recompute() {
+
+		Set<Integer> oids = new HashSet<>(counters.keySet());
+		if (!skippedGenomes.isEmpty()) {
+			loadStoredGenomes();
+			for (String genomeAc : skippedGenomes)
+				if (genomes.containsKey(genomeAc))
+					oids.add(genomes.get(genomeAc));
+		}
+
+		if (oids.isEmpty())
+			return;
+
+		String[] set = new String[COLUMNS.length];
+		for (int i=0; i<COLUMNS.length; i++)
+			set[i] = COLUMNS[i] + " = EXCLUDED." + COLUMNS[i];
+
+		String SQL = "WITH o AS (SELECT unnest(?::integer[]) AS oid), "
+				+ "oc AS (SELECT g.oid, c.uniprot_ac FROM cds c JOIN genome g ON g.ac = c.genome_ac JOIN o ON o.oid = g.oid), "
+				+ "p AS (SELECT DISTINCT oid, split_part(uniprot_ac, '-', 1) AS ac FROM oc WHERE uniprot_ac IS NOT NULL) "
+				+ "INSERT INTO organism_stats(oid, " + String.join(", ", COLUMNS) + ") SELECT o.oid, "
+				+ "(SELECT count(*) FROM genome g WHERE g.oid = o.oid), "
+				+ "(SELECT count(*) FROM oc WHERE oc.oid = o.oid), "
+				+ "(SELECT count(oc.uniprot_ac) FROM oc WHERE oc.oid = o.oid), "
+				+ "(SELECT count(*) FROM p WHERE p.oid = o.oid AND EXISTS (SELECT 1 FROM protein2go x WHERE x.uniprot_ac = p.ac)), "
+				+ "(SELECT count(*) FROM p WHERE p.oid = o.oid AND EXISTS (SELECT 1 FROM protein2pfam x WHERE x.uniprot_ac = p.ac)), "
+				+ "(SELECT count(*) FROM p WHERE p.oid = o.oid AND EXISTS (SELECT 1 FROM protein2pdb x WHERE x.uniprot_ac = p.ac)), "
+				+ "(SELECT coalesce(sum(g.seq_length), 0) FROM genome g WHERE g.oid = o.oid) "
+				+ "FROM o ON CONFLICT (oid) DO UPDATE SET " + String.join(", ", set);
+
+		try (Connection conn = ConnectDB.connect();
+				PreparedStatement pstmt = conn.prepareStatement(SQL)) {
+
+			pstmt.setArray(1, conn.createArrayOf("integer", oids.toArray()));
+			int n = pstmt.executeUpdate();
+
+			System.out.println("Summary statistics of " + n + " organisms recomputed in \"organism_stats\" relation");
+
+		} catch (SQLException ex) {
+			System.out.println(ex.getMessage());
+		}
+	}
+
+	//Genomes loaded by earlier runs (incremental mode)
+	private static void loadStoredGenomes() {
+
+		if (genomesLoaded)
+			return;
+
+		for (Map.Entry<String, Integer> e : DBqueries.getGenomeOIDs().entrySet())
+			genomes.putIfAbsent(e.getKey(), e.getValue());
+		genomesLoaded = true;
+	}
+
+	private static void mapCds(int oid, String uniprotAc) {
+
+		get(oid)[CDS_UNIPROT]++;
+
+		proteins.computeIfAbsent(uniprotAc.split("-")[0], k -> new HashSet<>()).add(oid);
+	}
+
+	//Count a protein for each of its organisms, on its first annotation of a kind
+	private static void addAnnotation(String uniprotAc, Set<String> counted, int counter) {
+
+		Set<Integer> oids = proteins.get(uniprotAc);
+
+		if (oids == null || !counted.add(uniprotAc))
+			return;
+
+		for (int oid : oids)
+			get(oid)[counter]++;
+	}
+
+	private static long[] get(int oid) {
+		return counters.computeIfAbsent(oid, k -> new long[COLUMNS.length]);
+	}
+
+}
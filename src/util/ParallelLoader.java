@@ -0,0 +1,74 @@
+package util;
+
+/**
+ * This class loads a relation over several concurrent COPY streams (system property
+ * tagopsin.load.streams), each a BulkLoader with its own writer thread and connection. Rows
+ * are routed by a key (e.g. a genome AC), so that all rows with the same key go through the
+ * same stream and keep their order. When a ParallelLoader is the parent of another, stream i
+ * of the child has stream i of the parent as its parent.
+ *
+ * Concurrent streams into one unpartitioned relation contend for its last pages, so there
+ * is a single stream unless tagopsin.load.streams is set, or 4 in the partitioned mode (see
+ * class LoadPhase.java), where the rows of the streams mostly go to different partitions.
+ *
+ * @since	2026-10-17
+ * @version	1.0
+ *
+ */
+
+public class ParallelLoader {
+
+	private final BulkLoader[] streams;
+
+	public ParallelLoader(String table, String... columns) {
+
+		int defaultStreams = LoadPhase.getPartitions() > 0 ? 4 : 1;
+		streams = new BulkLoader[Math.max(1, Config.getInt("tagopsin.load.streams", defaultStreams))];
+
+		for (int i=0; i<streams.length; i++)
+			streams[i] = new BulkLoader(table, columns);
+	}
+
+	public void setParent(ParallelLoader parent) {
+
+		if (parent.streams.length != streams.length)
+			throw new IllegalArgumentException("Parent loader has a different number of streams");
+
+		for (int i=0; i<streams.length; i++)
+			streams[i].setParent(parent.streams[i]);
+	}
+
+	//Rows with the same key must be routed to the same stream, as each stream skips its own duplicates
+	public void setUniqueKey(String... keyColumns) {
+
+		for (BulkLoader loader : streams)
+			loader.setUniqueKey(keyColumns);
+	}
+
+	public BulkLoader getStream(String key) {
+		return streams[Math.floorMod(key.hashCode(), streams.length)];
+	}
+
+	public void addRow(String key, Object... values) {
+		getStream(key).addRow(values);
+	}
+
+	public void close() {
+
+		//flush every stream first, so that the streams are written concurrently
+		for (BulkLoader loader : streams)
+			loader.flush();
+
+		for (BulkLoader loader : streams)
+			loader.close();
+	}
+
+	public long getRowsFailed() {
+
+		long n = 0;
+		for (BulkLoader loader : streams)
+			n += loader.getRowsFailed();
+		return n;
+	}
+
+}
@@ -0,0 +1,103 @@
+package util;
+
+/**
+ * This class is a snapshot of the statistics of the connection pool (see class ConnectionPool.java),
+ * used to size the pool for a given workload.
+ *
+ * @since	2026-10-17
+ * @version	1.0
+ *
+ */
+
+public class PoolStats {
+
+	private int maxSize;
+	private int active;
+	private int idle;
+	private long created;
+	private long acquired;
+	private long evicted;
+	private long leaksReported;
+	private long leaksReclaimed;
+	private double avgWaitMs;
+	private double maxWaitMs;
+	private long stmtHits;
+	private long stmtMisses;
+
+	public PoolStats(int maxSize, int active, int idle, long created, long acquired, long evicted,
+			long leaksReported, long leaksReclaimed, double avgWaitMs, double maxWaitMs,
+			long stmtHits, long stmtMisses) {
+		this.maxSize = maxSize;
+		this.active = active;
+		this.idle = idle;
+		this.created = created;
+		this.acquired = acquired;
+		this.evicted = evicted;
+		this.leaksReported = leaksReported;
+		this.leaksReclaimed = leaksReclaimed;
+		this.avgWaitMs = avgWaitMs;
+		this.maxWaitMs = maxWaitMs;
+		this.stmtHits = stmtHits;
+		this.stmtMisses = stmtMisses;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public int getActive() {
+		return active;
+	}
+
+	public int getIdle() {
+		return idle;
+	}
+
+	public long getCreated() {
+		return created;
+	}
+
+	public long getAcquired() {
+		return acquired;
+	}
+
+	public long getEvicted() {
+		return evicted;
+	}
+
+	public long getLeaksReported() {
+		return leaksReported;
+	}
+
+	public long getLeaksReclaimed() {
+		return leaksReclaimed;
+	}
+
+	public double getAvgWaitMs() {
+		return avgWaitMs;
+	}
+
+	public double getMaxWaitMs() {
+		return maxWaitMs;
+	}
+
+	public long getStmtHits() {
+		return stmtHits;
+	}
+
+	public long getStmtMisses() {
+		return stmtMisses;
+	}
+
+	@Override
+	public String toString() {
+
+		long prepared = stmtHits + stmtMisses;
+
+		return String.format("Connection pool: size %d, active %d, idle %d, created %d, acquired %d, evicted %d%n"
+				+ "Connection pool: wait avg %.3f ms, max %.3f ms; statement reuse %.1f%% of %d; leaks reported %d, reclaimed %d",
+				maxSize, active, idle, created, acquired, evicted, avgWaitMs, maxWaitMs,
+				prepared == 0 ? 0.0 : 100.0 * stmtHits / prepared, prepared, leaksReported, leaksReclaimed);
+	}
+
+}
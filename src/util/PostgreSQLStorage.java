@@ -0,0 +1,98 @@
+package util;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+/**
+ * This class is the PostgreSQL storage backend (see interface Storage.java). Batches of rows
+ * are sent with the COPY protocol, staged updates are applied with one UPDATE ... FROM, and
+ * keys and indexes are built by class LoadPhase.java.
+ *
+ * @since	2026-10-17
+ * @version	1.0
+ *
+ */
+
+public class PostgreSQLStorage implements Storage {
+
+	static final PostgreSQLStorage INSTANCE = new PostgreSQLStorage();
+
+	private PostgreSQLStorage() {
+	}
+
+	public String getName() {
+		return "PostgreSQL";
+	}
+
+	public boolean isEmbedded() {
+		return false;
+	}
+
+	public long write(Connection conn, String table, String[] columns, List<Object[]> rows) throws SQLException, IOException {
+
+		long t1 = System.nanoTime();
+		String copySQL = "COPY " + table + "(" + String.join(", ", columns) + ") FROM STDIN";
+
+		CopyManager cm = conn.unwrap(PGConnection.class).getCopyAPI();
+		long n = cm.copyIn(copySQL, new StringReader(BulkLoader.encode(rows)));
+		JdbcStats.record(copySQL, System.nanoTime() - t1, n, false);
+
+		return n;
+	}
+
+	public String getKeySQL(String table, String column) {
+		return "SELECT nextval(pg_get_serial_sequence('" + table + "', '" + column + "')) FROM generate_series(1, ?)";
+	}
+
+	public String getStagingTableSQL(String stage, String definitions) {
+		return "CREATE UNLOGGED TABLE " + stage + "(seq bigserial, " + definitions + ")";
+	}
+
+	public String getStagedUpdateSQL(String table, String stage, String[] keys, String[] columns, 
+			boolean keepLast, String condition) {
+
+		List<String> set = new ArrayList<>();
+		List<String> current = new ArrayList<>();
+		List<String> staged = new ArrayList<>();
+		for (String column : columns) {
+			set.add(column + " = s." + column);
+			current.add(table + "." + column);
+			staged.add("s." + column);
+		}
+
+		//rows already holding the staged values are not rewritten
+		List<String> where = new ArrayList<>();
+		for (String key : keys)
+			where.add(table + "." + key + " = s." + key);
+		if (condition != null)
+			where.add(condition);
+		where.add("(" + String.join(", ", current) + ") IS DISTINCT FROM (" + String.join(", ", staged) + ")");
+
+		return "UPDATE " + table + " SET " + String.join(", ", set) 
+				+ " FROM (SELECT DISTINCT ON (" + String.join(", ", keys) + ") " 
+				+ String.join(", ", keys) + ", " + String.join(", ", columns) 
+				+ " FROM " + stage + " ORDER BY " + String.join(", ", keys) + ", seq" + (keepLast ? " DESC" : "") + ") s"
+				+ " WHERE " + String.join(" AND ", where);
+	}
+
+	public String getReturningSQL(String SQL, String table, String[] columns) {
+
+		String[] returning = new String[columns.length];
+		for (int i=0; i<columns.length; i++)
+			returning[i] = table + "." + columns[i];
+
+		return SQL + " RETURNING " + String.join(", ", returning);
+	}
+
+	public void buildDeferred() {
+		LoadPhase.buildDeferred();
+	}
+
+}
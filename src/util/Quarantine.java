@@ -0,0 +1,95 @@
+package util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+
+/**
+ * This class keeps a record of the rows rejected by the database during a pipeline stage,
+ * instead of printing them. Each rejected row is written as one line of a tab-separated file:
+ * the relation and its columns, the SQL state, the error message and the row values in the
+ * text format of COPY, so that the rows can be corrected and loaded again.
+ *
+ * Rows are written to a file for the stage in progress, which is renamed after the stage
+ * (e.g. "quarantine/05_Protein.tsv") at the end of the stage (see class WriteBehind.java).
+ * The directory is set by the system property tagopsin.quarantine.dir.
+ *
+ * @since	2026-10-17
+ * @version	1.0
+ *
+ */
+
+public class Quarantine {
+
+	private static final Path dir = Paths.get(Config.getString("tagopsin.quarantine.dir", "quarantine"));
+	private static final Path current = dir.resolve("stage_in_progress.tsv");
+
+	private static BufferedWriter out = null;
+	private static long rows = 0;
+	private static int stages = 0;
+
+	public static synchronized void add(String table, String[] columns, Object[] row, SQLException ex) {
+
+		try {
+			if (out == null) {
+				Files.createDirectories(dir);
+				out = Files.newBufferedWriter(current, StandardCharsets.UTF_8);
+				out.write("#relation(columns)\tsql_state\tmessage\tvalues...\n");
+			}
+
+			StringBuilder sb = new StringBuilder();
+			sb.append(table).append('(').append(String.join(",", columns)).append(")\t");
+			BulkLoader.appendValue(sb, ex.getSQLState());
+			sb.append('\t');
+			BulkLoader.appendValue(sb, String.valueOf(ex.getMessage()).trim());
+			for (Object value : row) {
+				sb.append('\t');
+				BulkLoader.appendValue(sb, value);
+			}
+			sb.append('\n');
+
+			out.write(sb.toString());
+			out.flush();
+			rows++;
+
+		} catch (IOException e) {
+			System.out.println("Unable to write to the quarantine file: " + e.getMessage());
+			System.out.println(table + ": " + ex.getMessage());
+		}
+	}
+
+	/**
+	 * Closes the file of the stage in progress and names it after the stage.
+	 *
+	 * @return number of rows quarantined during the stage
+	 */
+	public static synchronized long finishStage(String stage) {
+
+		stages++;
+
+		if (out == null)
+			return 0;
+
+		long n = rows;
+		Path target = dir.resolve(String.format("%02d_%s.tsv", stages, stage));
+
+		try {
+			out.close();
+			Files.move(current, target, StandardCopyOption.REPLACE_EXISTING);
+			System.out.printf("%s: %d rejected rows written to %s\n", stage, n, target);
+		} catch (IOException e) {
+			System.out.println("Unable to close the quarantine file: " + e.getMessage());
+		}
+
+		out = null;
+		rows = 0;
+
+		return n;
+	}
+
+}
@@ -0,0 +1,60 @@
+package util;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * This class creates the range partitions of a relation partitioned on a serial column (e.g.
+ * "cds_ntseq" on cdsid) as values are handed out, since the range of values is only known
+ * during the load. Each partition holds tagopsin.load.partitionRange consecutive values. It
+ * does nothing unless the partitioned mode is on (see class LoadPhase.java).
+ *
+ * @since	2026-10-17
+ * @version	1.0
+ *
+ */
+
+public class RangePartitioner {
+
+	private final String table;
+	private final long width;
+	private final boolean enabled;
+	private final Set<Long> created = new HashSet<>();
+
+	public RangePartitioner(String table) {
+
+		this.table = table;
+		this.width = Math.max(1, Config.getLong("tagopsin.load.partitionRange", 1000000));
+		this.enabled = LoadPhase.getPartitions() > 0;
+	}
+
+	//Make sure partitions exist for all values from "from" to "to" (inclusive)
+	public synchronized void cover(long from, long to) {
+
+		if (!enabled)
+			return;
+
+		for (long start = Math.floorDiv(from, width) * width; start <= to; start += width) {
+
+			if (created.contains(start))
+				continue;
+
+			String SQL = SQL_DDL.getRangePartitionSQL(table, start, start + width, LoadPhase.isUnlogged())
+					.replace("TABLE ", "TABLE IF NOT EXISTS ");
+
+			try (Connection conn = ConnectDB.connect();
+					Statement stmt = conn.createStatement()) {
+
+				stmt.execute(SQL);
+				created.add(start);
+
+			} catch (SQLException ex) {
+				throw new IllegalStateException("Unable to create a partition of " + table + ": " + ex.getMessage(), ex);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,88 @@
+package util;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class holds the accessions of interest shared by the pipeline stages (organisms, UniProt
+ * ACs and PDB entries). Each set is read from PostgreSQL the first time it is needed, and is
+ * then kept up to date by the stages as they load rows, so that later stages look accessions
+ * up in memory instead of querying the relations again. The UniProt ACs are read again once
+ * the "protein" relation is loaded, so that rows rejected by the database are left out.
+ * 
+ * @since	2026-10-17
+ * @version	1.0
+ *
+ */
+
+public class Registry {
+	
+	private static final Map<String, Integer> organisms = new ConcurrentHashMap<>();
+	private static final Set<String> proteins = ConcurrentHashMap.newKeySet();
+	private static final Set<String> cdsProteins = ConcurrentHashMap.newKeySet();
+	private static final Set<String> pdbEntries = ConcurrentHashMap.newKeySet();
+	
+	private static boolean organismsLoaded = false;
+	private static boolean proteinsLoaded = false;
+	private static boolean cdsProteinsLoaded = false;
+	private static boolean pdbEntriesLoaded = false;
+	
+	//organism names with their OID in table "organism"
+	public static synchronized Map<String, Integer> getOrganisms() {
+		
+		if (!organismsLoaded) {
+			for (Map.Entry<String, Integer> e : DBqueries.getOrganismIDs().entrySet())
+				organisms.putIfAbsent(e.getKey(), e.getValue());
+			organismsLoaded = true;
+		}
+		return organisms;
+	}
+	
+	public static void addOrganism(String species, int oid) {
+		organisms.putIfAbsent(species, oid);
+	}
+	
+	//UniProt ACs in table "protein"
+	public static synchronized Set<String> getUniProtACs() {
+		
+		if (!proteinsLoaded) {
+			proteins.addAll(Arrays.asList(DBqueries.getUniProtACs()));
+			proteinsLoaded = true;
+		}
+		return proteins;
+	}
+	
+	//Reads the UniProt ACs again, once the rows of table "protein" are written
+	public static synchronized void reloadUniProtACs() {
+		
+		proteins.clear();
+		proteinsLoaded = false;
+		getUniProtACs();
+	}
+	
+	//UniProt ACs (without isoform suffix) mapped onto coding sequences in table "cds"
+	public static synchronized Set<String> getCdsUniProtACs() {
+		
+		if (!cdsProteinsLoaded) {
+			cdsProteins.addAll(Arrays.asList(DBqueries.getCdsUniProt()));
+			cdsProteinsLoaded = true;
+		}
+		return cdsProteins;
+	}
+	
+	//PDB IDs in table "pdb_chain"
+	public static synchronized Set<String> getPDBIDs() {
+		
+		if (!pdbEntriesLoaded) {
+			pdbEntries.addAll(Arrays.asList(DBqueries.getPDBIDs()));
+			pdbEntriesLoaded = true;
+		}
+		return pdbEntries;
+	}
+	
+	public static void addPDBID(String pdbId) {
+		pdbEntries.add(pdbId);
+	}
+
+}
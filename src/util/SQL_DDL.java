@@ -1,8 +1,17 @@
 package util;
 
+import java.util.LinkedList;
+import java.util.List;
+
 /**
  * This class contains SQL DDL statements used by TAGOPSIN for creating domains and relations 
  * in the local database "tagopsin" in PostgreSQL.
+ * Relations are created without keys or indexes; primary keys, secondary indexes and foreign 
+ * keys are built after the data have been loaded (see class LoadPhase.java). In the fast-load 
+ * mode, relations are created UNLOGGED and switched to LOGGED at the end of the load.
+ * In the partitioned mode (PostgreSQL 11 or higher), "cds" is hash-partitioned on genome_ac 
+ * so that the rows of a genome stay together, "protein2pdb" is hash-partitioned on 
+ * uniprot_ac and "cds_ntseq" is range-partitioned on cdsid (see class RangePartitioner.java).
  *  
  * @author 	Eshan Bundhoo, University of Mauritius
  * @since	2021-03-01
@@ -13,8 +22,21 @@ package util;
 public class SQL_DDL {
 	
 	public static String getSQL() {
+		return getSQL(false, 0);
+	}
+	
+	/**
+	 * @param unlogged 		create relations UNLOGGED
+	 * @param partitions 	number of hash partitions of "cds" and "protein2pdb" (0 for 
+	 * 						unpartitioned relations)
+	 */
+	public static String getSQL(boolean unlogged, int partitions) {
 		
 		String sql = "";
+		String create = unlogged ? "CREATE UNLOGGED TABLE " : "CREATE TABLE ";
+		
+		//a partitioned table has no storage of its own, only its partitions can be unlogged
+		String createParent = partitions > 0 ? "CREATE TABLE " : create;
 		
 		//Create domains
 		sql += "CREATE DOMAIN taxa_identity AS integer;\n";
@@ -26,20 +48,26 @@ public class SQL_DDL {
 		sql += "CREATE DOMAIN pdb_identity AS char(4);\n";		
 		
 		//Create tables
-		sql += "CREATE TABLE organism(\n";
+		sql += create + "organism(\n";
 		sql += "    oid serial NOT NULL,\n";
 		sql += "    species varchar NOT NULL,\n";
-		sql += "    taxonomy_id taxa_identity,\n";
-		sql += "    PRIMARY KEY (oid)\n";
+		sql += "    taxonomy_id taxa_identity\n";
 		sql += ");\n";
-		sql += "CREATE TABLE genome(\n";
+		sql += create + "genome(\n";
 		sql += "    ac varchar(20) NOT NULL,\n";
 		sql += "    nt_sequence varchar,\n";
 		sql += "    oid integer NOT NULL,\n";
-		sql += "    PRIMARY KEY (ac),\n";
-		sql += "    FOREIGN KEY (oid) REFERENCES organism\n";
+		sql += "    seq_length integer,\n";
+		sql += "    nt_packed bytea,\n";
+		sql += "    complete boolean DEFAULT false NOT NULL\n";
 		sql += ");\n";
-		sql += "CREATE TABLE cds(\n";
+		sql += create + "genome_chunk(\n";
+		sql += "    genome_ac varchar(20) NOT NULL,\n";
+		sql += "    start integer NOT NULL,\n";
+		sql += "    seq varchar,\n";
+		sql += "    seq_packed bytea\n";
+		sql += ");\n";
+		sql += createParent + "cds(\n";
 		sql += "    cdsid serial NOT NULL,\n";
 		sql += "    gene varchar(25),\n";
 		sql += "    locus_tag varchar(25),\n";
@@ -49,19 +77,21 @@ public class SQL_DDL {
 		sql += "    uniprot_ac uniprot_accession,\n";
 		sql += "    prot_aa_seq varchar,\n";
 		sql += "    genome_ac varchar(20),\n";
-		sql += "    PRIMARY KEY (cdsid),\n";
-		sql += "    FOREIGN KEY (genome_ac) REFERENCES genome (ac)\n";
-		sql += ");\n";
-		sql += "CREATE TABLE cds_ntseq(\n";
+		sql += "    prot_seq_id integer,\n";
+		sql += "    prot_crc64 bigint,\n";
+		sql += "    prot_md5 uuid\n";
+		sql += ")" + getHashPartitionSQL("cds", "genome_ac", partitions, create);
+		sql += createParent + "cds_ntseq(\n";
 		sql += "    ntsid serial NOT NULL,\n";
 		sql += "    start integer NOT NULL,\n";
 		sql += "    stop integer NOT NULL,\n";
+		sql += "    strand char(1),\n";
 		sql += "    seq varchar,\n";
-		sql += "    cdsid integer,\n";
-		sql += "    PRIMARY KEY (ntsid),\n";
-		sql += "    FOREIGN KEY (cdsid) REFERENCES cds\n";
-		sql += ");\n";
-		sql += "CREATE TABLE protein(\n";
+		sql += "    seq_packed bytea,\n";
+		sql += "    genome_ac varchar(20),\n";
+		sql += "    cdsid integer\n";
+		sql += (partitions > 0 ? ") PARTITION BY RANGE (cdsid);\n" : ");\n");
+		sql += create + "protein(\n";
 		sql += "    uniprot_ac uniprot_accession NOT NULL,\n";
 		sql += "    name text,\n";
 		sql += "    function text,\n";
@@ -69,74 +99,325 @@ public class SQL_DDL {
 		sql += "    aa_sequence varchar,\n";
 		sql += "    aa_seq_length smallint,\n";
 		sql += "    uniprot_id varchar,\n";
-		sql += "    PRIMARY KEY (uniprot_ac)\n";
+		sql += "    seq_id integer,\n";
+		sql += "    seq_crc64 bigint,\n";
+		sql += "    seq_md5 uuid\n";
 		sql += ");\n";
-		sql += "CREATE TABLE protein_isoform(\n";
+		sql += create + "protein_isoform(\n";
 		sql += "	isoform_ac uniprot_accession NOT NULL,\n";
 		sql += "	uniprot_ac uniprot_accession NOT NULL,\n";
 		sql += "	isoform_aa_seq varchar,\n";
-		sql += "	PRIMARY KEY (isoform_ac),\n";
-		sql += "	FOREIGN KEY (uniprot_ac) REFERENCES protein\n";
+		sql += "	seq_id integer,\n";
+		sql += "	seq_crc64 bigint,\n";
+		sql += "	seq_md5 uuid\n";
 		sql += ");\n";
-		sql += "CREATE TABLE protein2go(\n";
+		sql += create + "protein2go(\n";
 		sql += "    uniprot_ac uniprot_accession NOT NULL,\n";
-		sql += "    go_id go_identity NOT NULL,\n";
-		sql += "    PRIMARY KEY (uniprot_ac, go_id),\n";
-		sql += "    FOREIGN KEY (uniprot_ac) REFERENCES protein\n";
+		sql += "    go_id go_identity NOT NULL\n";
 		sql += ");\n";
-		sql += "CREATE TABLE go(\n";
+		sql += create + "go(\n";
 		sql += "    go_id go_identity NOT NULL,\n";
 		sql += "    name text NOT NULL,\n";
 		sql += "    definition text,\n";
-		sql += "    namespace varchar(30),\n";
-		sql += "    PRIMARY KEY (go_id)\n";
+		sql += "    namespace varchar(30)\n";
 		sql += ");\n";
-		sql += "CREATE TABLE go_parent(\n";
+		sql += create + "go_parent(\n";
 		sql += "    go_id go_identity NOT NULL,\n";
-		sql += "    go_id_parent go_identity NOT NULL,\n";
-		sql += "    PRIMARY KEY (go_id, go_id_parent)\n";
+		sql += "    go_id_parent go_identity NOT NULL\n";
 		sql += ");\n";
-		sql += "CREATE TABLE protein2pfam(\n";
+		sql += create + "protein2pfam(\n";
 		sql += "    uniprot_ac uniprot_accession NOT NULL,\n";
 		sql += "    seq_start smallint NOT NULL,\n";
 		sql += "    seq_stop smallint NOT NULL,\n";
-		sql += "    pfam_ac pfam_accession NOT NULL,\n";
-		sql += "    PRIMARY KEY (uniprot_ac, seq_start, seq_stop),\n";
-		sql += "    FOREIGN KEY (uniprot_ac) REFERENCES protein\n";
+		sql += "    pfam_ac pfam_accession NOT NULL\n";
 		sql += ");\n";
-		sql += "CREATE TABLE pfam(\n";
+		sql += create + "pfam(\n";
 		sql += "    pfam_ac pfam_accession NOT NULL,\n";
 		sql += "    pfam_id varchar(30) NOT NULL,\n";
-		sql += "    description text,\n";
-		sql += "    PRIMARY KEY (pfam_ac)\n";
+		sql += "    description text\n";
 		sql += ");\n";
-		sql += "CREATE TABLE protein2pdb(\n";
+		sql += createParent + "protein2pdb(\n";
 		sql += "	uniprot_ac uniprot_accession NOT NULL,\n";
 		sql += "    sp_start smallint NOT NULL,\n";
 		sql += "    sp_stop smallint NOT NULL,\n";
 		sql += "    pdb_id pdb_identity NOT NULL,\n";
 		sql += "    chain varchar(5) NOT NULL,\n";
 		sql += "    pdb_start varchar(5),\n";
-		sql += "    pdb_stop varchar(5),\n";
-		sql += "    --PRIMARY KEY (uniprot_ac, sp_start, pdb_id, chain, pdb_start),\n";
-		sql += "    FOREIGN KEY (uniprot_ac) REFERENCES protein\n";
-		sql += ");\n";
-		sql += "CREATE TABLE pdb_chain(\n";
+		sql += "    pdb_stop varchar(5)\n";
+		sql += ")" + getHashPartitionSQL("protein2pdb", "uniprot_ac", partitions, create);
+		sql += create + "pdb_chain(\n";
 		sql += "    pdb_id pdb_identity NOT NULL,\n";
 		sql += "    chain varchar(5) NOT NULL,\n";
 		sql += "    aa_sequence varchar,\n";
 		sql += "    taxonomy_id taxa_identity,\n";
-		sql += "    PRIMARY KEY (pdb_id, chain)\n";
+		sql += "    seq_id integer,\n";
+		sql += "    seq_crc64 bigint,\n";
+		sql += "    seq_md5 uuid\n";
 		sql += ");\n";
-		sql += "CREATE TABLE pdb(\n";
+		sql += create + "pdb(\n";
 		sql += "    pdb_id pdb_identity NOT NULL,\n";
 		sql += "    name text,\n";
 		sql += "    method text,\n";
-		sql += "    resolution varchar(15),\n";
-		sql += "    PRIMARY KEY (pdb_id)\n";
+		sql += "    resolution varchar(15)\n";
+		sql += ");\n";
+		sql += create + "aa_seq(\n";
+		sql += "    seq_id serial NOT NULL,\n";
+		sql += "    seq_hash bytea NOT NULL,\n";
+		sql += "    aa_sequence varchar NOT NULL,\n";
+		sql += "    length integer\n";
+		sql += ");\n";
+		sql += create + "organism_stats(\n";
+		sql += "    oid integer NOT NULL,\n";
+		sql += "    genomes integer NOT NULL,\n";
+		sql += "    cds integer NOT NULL,\n";
+		sql += "    cds_uniprot integer NOT NULL,\n";
+		sql += "    proteins_go integer NOT NULL,\n";
+		sql += "    proteins_pfam integer NOT NULL,\n";
+		sql += "    proteins_pdb integer NOT NULL,\n";
+		sql += "    genome_length bigint NOT NULL\n";
+		sql += ");\n";
+		
+		//One row per finished load, read by the caches of the read API (see class QueryCache.java)
+		sql += "CREATE TABLE load_generation(\n";
+		sql += "    generation serial NOT NULL,\n";
+		sql += "    finished timestamp DEFAULT CURRENT_TIMESTAMP\n";
 		sql += ");";
 		
 		return sql;
 	}
 
+	/**
+	 * SQL functions reading nucleotide sequences from the stored genomes (PostgreSQL only):
+	 * nt_decode(bytea) decodes a packed sequence (see class NtCodec.java) a byte of 4 bases at 
+	 * a time, then applies its exception runs in one pass, genome_region(ac, start, stop) reads a region from the chunks it overlaps (or from 
+	 * genome.nt_sequence), and cds_sequence(cdsid) joins the segments of a CDS in the order of 
+	 * its location (reversed for complement(join(...))), each reverse-complemented if it is on 
+	 * the complement strand, reading segments loaded 
+	 * without a sequence (tagopsin.cds.lazySequence) from the genome. View "cds_ntseq_seq" is 
+	 * "cds_ntseq" with the sequence of every segment.
+	 * 
+	 * Column span of "cds_ntseq" is the closed range of positions of a segment, generated from 
+	 * start and stop as rows are loaded, and indexed with the genome AC by a GiST index (see 
+	 * method getRangeIndexSQL()) for overlap queries. Generated columns need PostgreSQL 12 or 
+	 * higher: on an older server the column and its index are not created, and overlaps are 
+	 * found on start and stop (see class Repository.java).
+	 * 
+	 * Every statement can be re-run: the incremental mode runs them on the existing database.
+	 */
+	public static String getFunctionSQL() {
+		
+		String sql = "";
+		
+		sql += "CREATE OR REPLACE FUNCTION nt_int4(bytea, integer) RETURNS integer AS $$\n";
+		sql += "    SELECT (get_byte($1, $2) << 24) | (get_byte($1, $2 + 1) << 16) | (get_byte($1, $2 + 2) << 8) | get_byte($1, $2 + 3)\n";
+		sql += "$$ LANGUAGE sql IMMUTABLE STRICT;\n";
+		sql += "CREATE OR REPLACE FUNCTION nt_decode(bytea) RETURNS varchar AS $$\n";
+		sql += "DECLARE\n";
+		sql += "    n integer := nt_int4($1, 0);\n";
+		sql += "    pos integer := 4 + (n + 3) / 4;\n";
+		sql += "    runs integer := nt_int4($1, pos);\n";
+		sql += "    quad text[] := " + getQuadArraySQL() + ";\n";
+		sql += "    seq varchar;\n";
+		sql += "BEGIN\n";
+		sql += "    SELECT left(string_agg(quad[get_byte($1, i) + 1], '' ORDER BY i), n)\n";
+		sql += "      INTO seq FROM generate_series(4, pos - 1) i;\n";
+		sql += "    seq := coalesce(seq, '');\n";
+		sql += "    IF runs = 0 THEN\n";
+		sql += "        RETURN seq;\n";
+		sql += "    END IF;\n";
+		sql += "    SELECT string_agg(substr(seq, r.prev + 1, r.p - r.prev) || repeat(chr(r.c), r.l), '' ORDER BY r.k) || substr(seq, max(r.p + r.l) + 1)\n";
+		sql += "      INTO seq\n";
+		sql += "      FROM (SELECT k, p, l, c, coalesce(lag(p + l) OVER (ORDER BY k), 0) AS prev\n";
+		sql += "              FROM (SELECT k, nt_int4($1, pos + 4 + 9 * k) AS p, nt_int4($1, pos + 8 + 9 * k) AS l, get_byte($1, pos + 12 + 9 * k) AS c\n";
+		sql += "                      FROM generate_series(0, runs - 1) k) x) r;\n";
+		sql += "    RETURN seq;\n";
+		sql += "END\n";
+		sql += "$$ LANGUAGE plpgsql IMMUTABLE STRICT;\n";
+		sql += "CREATE OR REPLACE FUNCTION genome_region(varchar, integer, integer) RETURNS varchar AS $$\n";
+		sql += "    SELECT coalesce(\n";
+		sql += "        (SELECT substr(string_agg(coalesce(c.seq, nt_decode(c.seq_packed)), '' ORDER BY c.start), $2 - min(c.start) + 1, $3 - $2 + 1)\n";
+		sql += "           FROM genome_chunk c\n";
+		sql += "          WHERE c.genome_ac = $1 AND c.start <= $3\n";
+		sql += "            AND c.start >= (SELECT coalesce(max(m.start), 1) FROM genome_chunk m\n";
+		sql += "                             WHERE m.genome_ac = $1 AND m.start <= $2)),\n";
+		sql += "        (SELECT substr(coalesce(g.nt_sequence, nt_decode(g.nt_packed)), $2, $3 - $2 + 1) FROM genome g WHERE g.ac = $1))\n";
+		sql += "$$ LANGUAGE sql STABLE;\n";
+		sql += "CREATE OR REPLACE FUNCTION cds_sequence(integer) RETURNS varchar AS $$\n";
+		sql += "    SELECT string_agg(CASE WHEN s.strand = '-' THEN reverse(translate(s.seq, 'ACGTacgt', 'TGCAtgca')) ELSE s.seq END, ''\n";
+		sql += "                      ORDER BY CASE WHEN s.type = 'complement_join' THEN -s.ntsid ELSE s.ntsid END)\n";
+		sql += "      FROM (SELECT n.ntsid, n.strand, c.type, coalesce(n.seq, nt_decode(n.seq_packed), genome_region(c.genome_ac, n.start, n.stop)) AS seq\n";
+		sql += "              FROM cds_ntseq n JOIN cds c ON c.cdsid = n.cdsid\n";
+		sql += "             WHERE n.cdsid = $1) s\n";
+		sql += "$$ LANGUAGE sql STABLE;\n";
+		sql += "CREATE OR REPLACE VIEW cds_ntseq_seq AS\n";
+		sql += "    SELECT s.ntsid, s.start, s.stop, s.strand, coalesce(s.seq, nt_decode(s.seq_packed), genome_region(c.genome_ac, s.start, s.stop)) AS seq, s.cdsid\n";
+		sql += "      FROM cds_ntseq s JOIN cds c ON c.cdsid = s.cdsid;\n";
+		sql += "DO $$\n";
+		sql += "BEGIN\n";
+		sql += "    IF current_setting('server_version_num')::integer >= 120000 THEN\n";
+		sql += "        CREATE EXTENSION IF NOT EXISTS btree_gist;\n";
+		sql += "        EXECUTE 'ALTER TABLE cds_ntseq ADD COLUMN IF NOT EXISTS span int4range '\n";
+		sql += "             || 'GENERATED ALWAYS AS (int4range(least(start, stop), greatest(start, stop), ''[]'')) STORED';\n";
+		sql += "    END IF;\n";
+		sql += "END\n";
+		sql += "$$;\n";
+		
+		return sql;
+	}
+
+	//Array literal of the 4 bases packed in each byte value, indexed from 1 by nt_decode()
+	private static String getQuadArraySQL() {
+		
+		String bases = "acgt";
+		StringBuilder quads = new StringBuilder("'{");
+		
+		for (int b=0; b<256; b++) {
+			if (b > 0)
+				quads.append(',');
+			for (int shift=6; shift>=0; shift-=2)
+				quads.append(bases.charAt((b >> shift) & 3));
+		}
+		
+		return quads.append("}'").toString();
+	}
+
+	//End of a CREATE TABLE statement, followed by the hash partitions of the relation if any
+	private static String getHashPartitionSQL(String table, String column, int partitions, String create) {
+		
+		if (partitions <= 0)
+			return ";\n";
+		
+		String sql = " PARTITION BY HASH (" + column + ");\n";
+		
+		for (int i=0; i<partitions; i++)
+			sql += create + table + "_p" + i + " PARTITION OF " + table 
+				+ " FOR VALUES WITH (MODULUS " + partitions + ", REMAINDER " + i + ");\n";
+		
+		return sql;
+	}
+	
+	//Partition of "cds_ntseq" holding cdsid values from "from" (inclusive) to "to" (exclusive)
+	public static String getRangePartitionSQL(String table, long from, long to, boolean unlogged) {
+		
+		return (unlogged ? "CREATE UNLOGGED TABLE " : "CREATE TABLE ") + table + "_r" + from 
+				+ " PARTITION OF " + table + " FOR VALUES FROM (" + from + ") TO (" + to + ")";
+	}
+	
+	//Relations that are partitioned in the partitioned mode
+	public static String[] getPartitionedTableNames() {
+		
+		return new String[] { "cds", "cds_ntseq", "protein2pdb" };
+	}
+
+	public static String[] getTableNames() {
+		
+		return new String[] { "organism", "genome", "genome_chunk", "cds", "cds_ntseq", "protein", "protein_isoform", 
+				"protein2go", "go", "go_parent", "protein2pfam", "pfam", "protein2pdb", "pdb_chain", "pdb", 
+				"aa_seq", "organism_stats" };
+	}
+	
+	public static String[][] getPrimaryKeys() {
+		return getPrimaryKeys(false);
+	}
+	
+	//Primary keys as {relation, key columns}; the key of a partitioned relation must contain its partition key
+	public static String[][] getPrimaryKeys(boolean partitioned) {
+		
+		return new String[][] {
+			{ "organism", "oid" },
+			{ "genome", "ac" },
+			{ "genome_chunk", "genome_ac, start" },
+			{ "cds", partitioned ? "cdsid, genome_ac" : "cdsid" },
+			{ "cds_ntseq", partitioned ? "ntsid, cdsid" : "ntsid" },
+			{ "protein", "uniprot_ac" },
+			{ "protein_isoform", "isoform_ac" },
+			{ "protein2go", "uniprot_ac, go_id" },
+			{ "go", "go_id" },
+			{ "go_parent", "go_id, go_id_parent" },
+			{ "protein2pfam", "uniprot_ac, seq_start, seq_stop" },
+			{ "pfam", "pfam_ac" },
+			{ "pdb_chain", "pdb_id, chain" },
+			{ "pdb", "pdb_id" },
+			{ "aa_seq", "seq_id" },
+			{ "organism_stats", "oid" },
+			//(uniprot_ac, sp_start, pdb_id, chain, pdb_start) is not unique, so the key is the whole row
+			{ "protein2pdb", "uniprot_ac, sp_start, sp_stop, pdb_id, chain, pdb_start, pdb_stop" }
+		};
+	}
+	
+	public static List<String> getIndexSQL() {
+		
+		List<String> list = new LinkedList<>();
+		
+		list.add("CREATE INDEX genome_oid_idx ON genome (oid)");
+		list.add("CREATE INDEX prot_id_idx ON cds (protein_id)");
+		list.add("CREATE INDEX gen_ac_idx ON cds (genome_ac)");
+		list.add("CREATE INDEX cds_uniprot_ac_idx ON cds (uniprot_ac)");
+		list.add("CREATE INDEX cds_ntseq_cdsid_idx ON cds_ntseq (cdsid)");
+		list.add("CREATE INDEX cds_ntseq_genome_start_idx ON cds_ntseq (genome_ac, start)");
+		list.add("CREATE INDEX cds_ntseq_genome_stop_idx ON cds_ntseq (genome_ac, stop)");
+		list.add("CREATE INDEX protein_isoform_uniprot_ac_idx ON protein_isoform (uniprot_ac)");
+		list.add("CREATE INDEX protein2go_go_id_idx ON protein2go (go_id)");
+		list.add("CREATE INDEX protein2pfam_pfam_ac_idx ON protein2pfam (pfam_ac)");
+		list.add("CREATE INDEX protein2pdb_uniprot_ac_idx ON protein2pdb (uniprot_ac)");
+		list.add("CREATE INDEX protein2pdb_pdb_id_chain_idx ON protein2pdb (pdb_id, chain)");
+		list.add("CREATE UNIQUE INDEX IF NOT EXISTS aa_seq_seq_hash_idx ON aa_seq (seq_hash)");
+		list.add("CREATE INDEX cds_prot_seq_id_idx ON cds (prot_seq_id)");
+		list.add("CREATE INDEX cds_prot_checksum_idx ON cds (prot_crc64, prot_md5)");
+		list.add("CREATE INDEX protein_seq_checksum_idx ON protein (seq_crc64, seq_md5)");
+		list.add("CREATE INDEX protein_isoform_seq_checksum_idx ON protein_isoform (seq_crc64, seq_md5)");
+		list.add("CREATE INDEX pdb_chain_seq_checksum_idx ON pdb_chain (seq_crc64, seq_md5)");
+		
+		return list;
+	}
+	
+	//GiST indexes on the columns of getFunctionSQL() (PostgreSQL only)
+	public static List<String> getRangeIndexSQL() {
+		
+		List<String> list = new LinkedList<>();
+		
+		list.add("CREATE INDEX cds_ntseq_span_idx ON cds_ntseq USING gist (genome_ac, span)");
+		
+		return list;
+	}
+	
+	public static List<String> getForeignKeySQL() {
+		return getForeignKeySQL(false);
+	}
+	
+	public static List<String> getForeignKeySQL(boolean partitioned) {
+		
+		List<String> list = new LinkedList<>();
+		
+		list.add("ALTER TABLE genome ADD CONSTRAINT genome_oid_fkey FOREIGN KEY (oid) REFERENCES organism");
+		list.add("ALTER TABLE organism_stats ADD CONSTRAINT organism_stats_oid_fkey FOREIGN KEY (oid) REFERENCES organism");
+		list.add("ALTER TABLE genome_chunk ADD CONSTRAINT genome_chunk_genome_ac_fkey FOREIGN KEY (genome_ac) REFERENCES genome (ac)");
+		list.add("ALTER TABLE cds ADD CONSTRAINT cds_genome_ac_fkey FOREIGN KEY (genome_ac) REFERENCES genome (ac)");
+		
+		//cdsid alone is not unique in partitioned "cds" (its key includes genome_ac)
+		if (!partitioned)
+			list.add("ALTER TABLE cds_ntseq ADD CONSTRAINT cds_ntseq_cdsid_fkey FOREIGN KEY (cdsid) REFERENCES cds");
+		list.add("ALTER TABLE protein_isoform ADD CONSTRAINT protein_isoform_uniprot_ac_fkey FOREIGN KEY (uniprot_ac) REFERENCES protein");
+		list.add("ALTER TABLE protein2go ADD CONSTRAINT protein2go_uniprot_ac_fkey FOREIGN KEY (uniprot_ac) REFERENCES protein");
+		list.add("ALTER TABLE protein2pfam ADD CONSTRAINT protein2pfam_uniprot_ac_fkey FOREIGN KEY (uniprot_ac) REFERENCES protein");
+		list.add("ALTER TABLE protein2pdb ADD CONSTRAINT protein2pdb_uniprot_ac_fkey FOREIGN KEY (uniprot_ac) REFERENCES protein");
+		
+		list.add("ALTER TABLE cds ADD CONSTRAINT cds_prot_seq_id_fkey FOREIGN KEY (prot_seq_id) REFERENCES aa_seq");
+		list.add("ALTER TABLE protein ADD CONSTRAINT protein_seq_id_fkey FOREIGN KEY (seq_id) REFERENCES aa_seq");
+		list.add("ALTER TABLE protein_isoform ADD CONSTRAINT protein_isoform_seq_id_fkey FOREIGN KEY (seq_id) REFERENCES aa_seq");
+		list.add("ALTER TABLE pdb_chain ADD CONSTRAINT pdb_chain_seq_id_fkey FOREIGN KEY (seq_id) REFERENCES aa_seq");
+		
+		//Referential integrity between data sources, formerly to be enforced by hand after inserting data
+		list.add("ALTER TABLE go_parent ADD CONSTRAINT go_parent_go_id_fkey FOREIGN KEY (go_id) REFERENCES go (go_id)");
+		list.add("ALTER TABLE go_parent ADD CONSTRAINT go_parent_go_id_parent_fkey FOREIGN KEY (go_id_parent) REFERENCES go (go_id)");
+		list.add("ALTER TABLE protein2go ADD CONSTRAINT protein2go_go_id_fkey FOREIGN KEY (go_id) REFERENCES go (go_id)");
+		list.add("ALTER TABLE protein2pfam ADD CONSTRAINT protein2pfam_pfam_ac_fkey FOREIGN KEY (pfam_ac) REFERENCES pfam (pfam_ac)");
+		list.add("ALTER TABLE protein2pdb ADD CONSTRAINT protein2pdb_pdb_id_chain_fkey FOREIGN KEY (pdb_id, chain) REFERENCES pdb_chain (pdb_id, chain)");
+		list.add("ALTER TABLE pdb_chain ADD CONSTRAINT pdb_chain_pdb_id_fkey FOREIGN KEY (pdb_id) REFERENCES pdb (pdb_id)");
+		
+		//cds (uniprot_ac) cannot reference protein: it contains both SwissProt and TrEMBL entries
+		
+		return list;
+	}
+
 }
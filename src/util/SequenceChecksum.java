@@ -0,0 +1,77 @@
+package util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.UUID;
+
+/**
+ * This class computes the checksums of an amino acid sequence stored next to it in relations
+ * "cds" (columns prot_crc64 and prot_md5), "protein", "protein_isoform" and "pdb_chain"
+ * (columns seq_crc64 and seq_md5): the CRC64 of SWISS-PROT, as printed in the SQ lines of
+ * UniProt entries, and the MD5 digest of the sequence as a uuid. The pair is indexed on each
+ * relation, so that identical sequences are joined on two fixed-size columns instead of
+ * comparing the sequences (see class Repository.java); CRC64 alone has known collisions
+ * between distinct proteins, which the 128-bit digest rules out in practice.
+ *
+ * @since	2026-10-17
+ * @version	1.0
+ *
+ */
+
+public class SequenceChecksum {
+
+	private static final long POLY64 = 0xD800000000000000L;
+	private static final long[] CRC_TABLE = new long[256];
+
+	private static final ThreadLocal<MessageDigest> md5 = ThreadLocal.withInitial(SequenceChecksum::newDigest);
+
+	static {
+		for (int i=0; i<256; i++) {
+			long part = i;
+			for (int j=0; j<8; j++)
+				part = (part & 1) != 0 ? (part >>> 1) ^ POLY64 : part >>> 1;
+			CRC_TABLE[i] = part;
+		}
+	}
+
+	//CRC64 of a sequence (null for a missing or empty one)
+	public static Long crc64(String seq) {
+
+		if (seq == null || seq.isEmpty())
+			return null;
+
+		long crc = 0;
+		for (int i=0; i<seq.length(); i++)
+			crc = CRC_TABLE[(int) ((crc ^ seq.charAt(i)) & 0xff)] ^ (crc >>> 8);
+
+		return crc;
+	}
+
+	//CRC64 as printed by UniProt, e.g. "F3A6E5A5CE2B5E49"
+	public static String toHex(long crc) {
+		return String.format("%016X", crc);
+	}
+
+	//MD5 digest of a sequence (null for a missing or empty one)
+	public static UUID md5(String seq) {
+
+		if (seq == null || seq.isEmpty())
+			return null;
+
+		ByteBuffer digest = ByteBuffer.wrap(md5.get().digest(seq.getBytes(StandardCharsets.US_ASCII)));
+
+		return new UUID(digest.getLong(), digest.getLong());
+	}
+
+	private static MessageDigest newDigest() {
+
+		try {
+			return MessageDigest.getInstance("MD5");
+		} catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+}
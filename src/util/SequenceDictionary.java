@@ -0,0 +1,103 @@
+package util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class is the dictionary of amino acid sequences of relation "aa_seq", which stores
+ * each distinct sequence once, keyed by its SHA-256 hash. When tagopsin.sequence.dictionary
+ * is set, the loaders of "cds", "protein", "protein_isoform" and "pdb_chain" reference
+ * sequences by ID (columns prot_seq_id and seq_id) instead of storing them in their own
+ * columns, which are left empty; identical proteins of many strains then share one row.
+ *
+ * Sequences are deduplicated in memory while parsing, through a concurrent index from hash
+ * to ID holding the sequences already stored (read from the database on first use, so that
+ * the incremental mode reuses them). IDs of new sequences are allocated on the client side
+ * (see class KeyAllocator.java), and the new sequences are written by a loader of their own,
+ * which each stage closes at its end (see method close()).
+ *
+ * @since	2026-10-17
+ * @version	1.0
+ *
+ */
+
+public class SequenceDictionary {
+
+	private static final boolean enabled = Config.getBoolean("tagopsin.sequence.dictionary", false);
+
+	private static final Map<ByteBuffer, Integer> index = new ConcurrentHashMap<>();
+	private static final KeyAllocator ids = new KeyAllocator("aa_seq", "seq_id");
+	private static final ThreadLocal<MessageDigest> sha256 = ThreadLocal.withInitial(SequenceDictionary::newDigest);
+
+	private static BulkLoader loader = null;
+	private static boolean indexLoaded = false;
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	//Value of a sequence column (null when sequences are stored in the dictionary)
+	public static String text(String seq) {
+		return enabled ? null : seq;
+	}
+
+	/**
+	 * ID of a sequence in the dictionary, adding it if it is new; null unless the dictionary
+	 * is enabled.
+	 */
+	public static Integer getId(String seq) {
+
+		if (!enabled || seq == null)
+			return null;
+
+		ByteBuffer hash = ByteBuffer.wrap(sha256.get().digest(seq.getBytes(StandardCharsets.US_ASCII)));
+		Integer id = index.get(hash);
+
+		return id != null ? id : add(hash, seq);
+	}
+
+	//Write the sequences added so far
+	public static synchronized void close() {
+
+		if (loader == null)
+			return;
+
+		loader.close();
+		loader = null;
+	}
+
+	private static synchronized Integer add(ByteBuffer hash, String seq) {
+
+		if (!indexLoaded) {
+			index.putAll(DBqueries.getSequenceIDs());
+			indexLoaded = true;
+		}
+
+		Integer id = index.get(hash);
+		if (id != null)
+			return id;
+
+		if (loader == null)
+			loader = new BulkLoader("aa_seq", "seq_id", "seq_hash", "aa_sequence", "length");
+
+		id = ids.nextId();
+		loader.addRow(id, hash.array(), seq, seq.length());
+		index.put(hash, id);
+
+		return id;
+	}
+
+	private static MessageDigest newDigest() {
+
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+}
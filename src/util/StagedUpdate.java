@@ -0,0 +1,138 @@
+package util;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.Consumer;
+
+/**
+ * This class applies the updates of a pipeline stage as one set-based statement. Matched
+ * tuples are streamed into an unlogged staging table with COPY (see class BulkLoader.java),
+ * and a single UPDATE ... FROM joining the staging table is run when the stage ends, instead
+ * of one UPDATE per tuple (the statement is written by the storage backend, see interface
+ * Storage.java).
+ *
+ * The staging table has an extra column "seq" recording the order in which tuples were
+ * staged, so that the update keeps the first (or last) tuple for a given key. Rows whose
+ * columns already hold the staged values are not rewritten (e.g. the rows of earlier loads
+ * in the incremental mode), and are neither counted nor returned. Columns of the
+ * updated rows can be returned by the update itself (e.g. to maintain the counters of class
+ * OrganismStats.java) without reading the relation again.
+ *
+ * @since	2026-10-17
+ * @version	1.0
+ *
+ */
+
+public class StagedUpdate {
+
+	private final String stage;
+	private final BulkLoader loader;
+
+	/**
+	 * @param stage 		name of the staging table
+	 * @param definitions 	column definitions of the staging table, e.g. "uniprot_ac varchar"
+	 */
+	public StagedUpdate(String stage, String... definitions) {
+
+		this.stage = stage;
+
+		String[] columns = new String[definitions.length];
+		for (int i=0; i<definitions.length; i++)
+			columns[i] = definitions[i].trim().split("\\s+")[0];
+
+		execute("DROP TABLE IF EXISTS " + stage,
+				Storage.get().getStagingTableSQL(stage, String.join(", ", definitions)));
+
+		loader = new BulkLoader(stage, columns);
+
+		ColumnarExport.createStage(stage, definitions);
+	}
+
+	public void addRow(Object... values) {
+		loader.addRow(values);
+	}
+
+	/**
+	 * Updates the given columns of a relation from the staged tuples matching on the key
+	 * columns, then drops the staging table.
+	 *
+	 * @param keepLast 		keep the last tuple staged for a key (otherwise the first one)
+	 * @param condition 	extra condition on the rows to update, e.g. "cds.uniprot_ac IS NULL"
+	 * 						(or null)
+	 * @return number of rows updated
+	 */
+	public int apply(String table, String[] keys, String[] columns, boolean keepLast, String condition) {
+		return apply(table, keys, columns, keepLast, condition, null, null);
+	}
+
+	/**
+	 * Same as above, and passes the given columns of each updated row to "rows".
+	 *
+	 * @param returning 	columns of the relation returned for each updated row (or null)
+	 */
+	public int apply(String table, String[] keys, String[] columns, boolean keepLast, String condition,
+			String[] returning, Consumer<String[]> rows) {
+
+		loader.close();
+
+		String updateSQL = Storage.get().getStagedUpdateSQL(table, stage, keys, columns, keepLast, condition);
+		ColumnarExport.applyStage(table, stage, keys, columns, keepLast, condition);
+
+		//H2 only analyzes a table given as "ANALYZE TABLE", and keeps its statistics up to date anyway
+		if (!Storage.get().isEmbedded())
+			execute("ANALYZE " + stage);
+
+		int count = returning == null ? execute(updateSQL)
+				: query(Storage.get().getReturningSQL(updateSQL, table, returning), rows);
+		execute("DROP TABLE " + stage);
+
+		return count;
+	}
+
+	//Run statements in order on one connection, and return the count of the last one
+	private static int execute(String... statements) {
+
+		int count = 0;
+
+		try (Connection conn = ConnectDB.connect();
+				Statement stmt = conn.createStatement()) {
+
+			for (String SQL : statements)
+				count = stmt.executeUpdate(SQL);
+
+		} catch (SQLException ex) {
+			System.out.println(ex.getMessage());
+		}
+
+		return count;
+	}
+
+	//Run a query and pass each row to "rows" as strings, returning the number of rows
+	private static int query(String SQL, Consumer<String[]> rows) {
+
+		int count = 0;
+
+		try (Connection conn = ConnectDB.connect();
+				Statement stmt = conn.createStatement();
+				ResultSet rs = stmt.executeQuery(SQL)) {
+
+			int n = rs.getMetaData().getColumnCount();
+
+			while (rs.next()) {
+				String[] row = new String[n];
+				for (int i=0; i<n; i++)
+					row[i] = rs.getString(i+1);
+				rows.accept(row);
+				count++;
+			}
+
+		} catch (SQLException ex) {
+			System.out.println(ex.getMessage());
+		}
+
+		return count;
+	}
+
+}
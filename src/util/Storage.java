@@ -0,0 +1,74 @@
+package util;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * This interface is the storage backend of TAGOPSIN: the database-specific operations behind
+ * the loaders of each relation (see classes BulkLoader.java, KeyAllocator.java and
+ * StagedUpdate.java) and the build of keys and indexes at the end of a load. Reads go through
+ * the plain SQL of class DBqueries.java, which all backends accept.
+ *
+ * The backend is chosen with the system property tagopsin.storage: "postgresql" (default, see
+ * class PostgreSQLStorage.java) or "h2", an embedded file-based database running in-process
+ * (see class H2Storage.java), which needs no database server.
+ *
+ * @since	2026-10-17
+ * @version	1.0
+ *
+ */
+
+public interface Storage {
+
+	public static Storage get() {
+
+		String name = Config.getString("tagopsin.storage", "postgresql");
+
+		if (name.equalsIgnoreCase("h2"))
+			return H2Storage.INSTANCE;
+		if (name.equalsIgnoreCase("postgresql"))
+			return PostgreSQLStorage.INSTANCE;
+
+		throw new IllegalArgumentException("Unknown storage backend \"" + name + "\" (tagopsin.storage)");
+	}
+
+	public String getName();
+
+	//true if the database runs inside TAGOPSIN (no server, no psql)
+	public boolean isEmbedded();
+
+	/**
+	 * Writes a batch of rows into a relation on the given connection.
+	 *
+	 * @return number of rows written
+	 */
+	public long write(Connection conn, String table, String[] columns, List<Object[]> rows) throws SQLException, IOException;
+
+	//Query returning the given number (its only parameter) of new values of a serial column
+	public String getKeySQL(String table, String column);
+
+	//Staging table of class StagedUpdate.java, with a column "seq" numbering the staged tuples
+	public String getStagingTableSQL(String stage, String definitions);
+
+	/**
+	 * Statement updating the given columns of a relation from a staging table, matching rows
+	 * on the key columns and keeping the first (or last) staged tuple for a key.
+	 *
+	 * @param condition 	extra condition on the rows of the relation (e.g. "cds.uniprot_ac
+	 * 						IS NULL"), or null
+	 */
+	public String getStagedUpdateSQL(String table, String stage, String[] keys, String[] columns, 
+			boolean keepLast, String condition);
+
+	/**
+	 * Query running an UPDATE or MERGE statement and returning the given columns of the rows
+	 * it changed.
+	 */
+	public String getReturningSQL(String SQL, String table, String[] columns);
+
+	//Build primary keys, secondary indexes and foreign keys once all data are loaded
+	public void buildDeferred();
+
+}
@@ -0,0 +1,116 @@
+package util;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * This class measures the write-ahead log (WAL) activity of the PostgreSQL server during a
+ * TAGOPSIN run: the volume of WAL generated and, where the server reports them (PostgreSQL 14
+ * or higher), the number and duration of WAL syncs to disk and backend fsync calls. The
+ * figures are server-wide, so other activity on the same server is included.
+ *
+ * @since	2026-10-17
+ * @version	1.0
+ *
+ */
+
+public class WalStats {
+
+	private static String startLsn = null;
+	private static long[] startSync = null;
+
+	public static void start() {
+
+		if (Storage.get().isEmbedded())
+			return;
+
+		try (Connection conn = ConnectDB.connect();
+				Statement stmt = conn.createStatement()) {
+
+			startLsn = currentLsn(stmt);
+			startSync = syncCounters(stmt);
+
+		} catch (SQLException ex) {
+			System.out.println("WAL statistics unavailable: " + ex.getMessage());
+		}
+	}
+
+	public static void print() {
+
+		if (startLsn == null)
+			return;
+
+		try (Connection conn = ConnectDB.connect();
+				Statement stmt = conn.createStatement()) {
+
+			String lsn = currentLsn(stmt);
+			String fn = serverVersion(stmt) >= 100000 ? "pg_wal_lsn_diff" : "pg_xlog_location_diff";
+
+			try (ResultSet rs = stmt.executeQuery("SELECT " + fn + "('" + lsn + "', '" + startLsn + "')")) {
+				rs.next();
+				System.out.printf("WAL generated = %.1f MB\n", rs.getDouble(1) / 1048576);
+			}
+
+			long[] sync = syncCounters(stmt);
+			if (startSync != null && sync != null)
+				System.out.printf("WAL syncs = %d (%.0f ms), backend fsyncs = %d\n",
+						sync[0] - startSync[0], (sync[1] - startSync[1]) / 1000.0, sync[2] - startSync[2]);
+
+		} catch (SQLException ex) {
+			System.out.println("WAL statistics unavailable: " + ex.getMessage());
+		}
+	}
+
+	private static int serverVersion(Statement stmt) throws SQLException {
+
+		try (ResultSet rs = stmt.executeQuery("SELECT current_setting('server_version_num')::int")) {
+			rs.next();
+			return rs.getInt(1);
+		}
+	}
+
+	private static String currentLsn(Statement stmt) throws SQLException {
+
+		String fn = serverVersion(stmt) >= 100000 ? "pg_current_wal_lsn()" : "pg_current_xlog_location()";
+
+		try (ResultSet rs = stmt.executeQuery("SELECT " + fn + "::text")) {
+			rs.next();
+			return rs.getString(1);
+		}
+	}
+
+	//{WAL syncs, WAL sync time in microseconds, backend fsyncs}, or null before PostgreSQL 14
+	private static long[] syncCounters(Statement stmt) throws SQLException {
+
+		int version = serverVersion(stmt);
+
+		if (version < 140000)
+			return null;
+
+		long[] counters = new long[3];
+
+		String SQL = version >= 180000
+				? "SELECT sum(fsyncs), sum(fsync_time) * 1000 FROM pg_stat_io WHERE object = 'wal'"
+				: "SELECT wal_sync, wal_sync_time * 1000 FROM pg_stat_wal";
+
+		try (ResultSet rs = stmt.executeQuery(SQL)) {
+			rs.next();
+			counters[0] = rs.getLong(1);
+			counters[1] = (long) rs.getDouble(2);
+		}
+
+		SQL = version >= 170000
+				? "SELECT sum(fsyncs) FROM pg_stat_io WHERE backend_type = 'client backend'"
+				: "SELECT buffers_backend_fsync FROM pg_stat_bgwriter";
+
+		try (ResultSet rs = stmt.executeQuery(SQL)) {
+			rs.next();
+			counters[2] = rs.getLong(1);
+		}
+
+		return counters;
+	}
+
+}
@@ -0,0 +1,135 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class runs database writes behind a parser. Tasks (batches of rows, see class
+ * BulkLoader.java) are executed in submission order on a dedicated writer thread, so that the
+ * parser can go on reading its input file while the previous batch is being written. At most
+ * tagopsin.writer.queueSize batches can be pending; beyond that submit() blocks until the
+ * database catches up, which bounds the memory held by queued rows.
+ *
+ * The writer thread ends after a minute without work and is started again on the next batch.
+ * At the end of each pipeline stage, finishStage() waits for all pending writes and reports
+ * the time parsers were held back and any write errors, and closes the quarantine file of the
+ * stage (see class Quarantine.java).
+ *
+ * @since	2026-10-17
+ * @version	1.0
+ *
+ */
+
+public class WriteBehind {
+
+	private static final Set<WriteBehind> writers = ConcurrentHashMap.newKeySet();
+
+	private final String name;
+	private final ThreadPoolExecutor executor;
+	private final Semaphore slots;
+	private volatile Future<?> last = null;
+
+	private final AtomicLong batches = new AtomicLong();
+	private final AtomicLong waitNanos = new AtomicLong();
+	private final AtomicLong errors = new AtomicLong();
+	private volatile String lastError = null;
+
+	public WriteBehind(String name) {
+
+		this.name = name;
+		this.slots = new Semaphore(Math.max(1, Config.getInt("tagopsin.writer.queueSize", 4)));
+
+		executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+			Thread t = new Thread(r, "tagopsin-writer-" + name);
+			t.setDaemon(true);
+			return t;
+		});
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Queues a task behind the tasks already submitted, waiting for a free slot if the queue
+	 * is full.
+	 */
+	public void submit(Runnable task) {
+
+		writers.add(this);
+
+		long t1 = System.nanoTime();
+		slots.acquireUninterruptibly();
+		waitNanos.addAndGet(System.nanoTime() - t1);
+
+		last = executor.submit(() -> {
+			try {
+				task.run();
+			} catch (RuntimeException ex) {
+				errors.incrementAndGet();
+				lastError = String.valueOf(ex.getMessage());
+				System.out.println("Write into \"" + name + "\" failed: " + lastError);
+			} finally {
+				batches.incrementAndGet();
+				slots.release();
+			}
+		});
+	}
+
+	//Wait until every task submitted so far has been executed
+	public void await() {
+
+		Future<?> f = last;
+
+		if (f == null)
+			return;
+
+		try {
+			f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			System.out.println(e.getCause().getMessage());
+		}
+	}
+
+	/**
+	 * Waits for the pending writes of all writers, prints a report for the stage and resets
+	 * the counters.
+	 *
+	 * @return number of failed write tasks
+	 */
+	public static long finishStage(String stage) {
+
+		long failed = 0;
+		long count = 0;
+		long wait = 0;
+
+		List<WriteBehind> stageWriters = new ArrayList<>(writers);
+		writers.removeAll(stageWriters);
+
+		for (WriteBehind w : stageWriters) {
+			w.await();
+			count += w.batches.getAndSet(0);
+			wait += w.waitNanos.getAndSet(0);
+			long e = w.errors.getAndSet(0);
+			if (e > 0)
+				System.out.printf("%s: %d failed writes into \"%s\", last error: %s\n", stage, e, w.name, w.lastError);
+			failed += e;
+		}
+
+		if (count > 0)
+			System.out.printf("%s: %d batches written, parser waited %.1f s for the database\n", stage, count, wait*1e-9);
+
+		Quarantine.finishStage(stage);
+
+		return failed;
+	}
+
+}
@@ -0,0 +1,114 @@
+package repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import util.ConnectDB;
+
+/**
+ * Tests of the caches of the read API (see class QueryCache.java): least recently used
+ * eviction, expiry, cached misses and values read before the caches were emptied. Relation
+ * "load_generation" is read from an in-memory H2 database.
+ *
+ * @since	2026-10-17
+ * @version	1.0
+ *
+ */
+
+public class QueryCacheTest {
+
+	@BeforeClass
+	public static void setUpDatabase() throws SQLException {
+
+		ConnectDB.configure("jdbc:h2:mem:querycache;MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+
+		try (Connection conn = ConnectDB.connect();
+				Statement stmt = conn.createStatement()) {
+			stmt.execute("CREATE TABLE load_generation(generation serial NOT NULL, finished timestamp DEFAULT CURRENT_TIMESTAMP)");
+		}
+
+		//the first read of the latest load empties the caches
+		new QueryCache<String, String>("setup").getAll(Collections.<String>emptyList(), new HashMap<>());
+	}
+
+	@After
+	public void clearSettings() {
+
+		System.clearProperty("tagopsin.cache.size");
+		System.clearProperty("tagopsin.cache.ttl");
+	}
+
+	@Test
+	public void leastRecentlyUsedIsEvicted() {
+
+		System.setProperty("tagopsin.cache.size", "2");
+		QueryCache<String, String> cache = new QueryCache<>("lru");
+		long generation = QueryCache.getGeneration();
+
+		cache.put("P69905", "HBA_HUMAN", generation);
+		cache.put("P68871", "HBB_HUMAN", generation);
+		cache.getAll(Arrays.asList("P69905"), new HashMap<>());
+		cache.put("P02042", "HBD_HUMAN", generation);
+
+		Map<String, String> found = new HashMap<>();
+		List<String> missing = cache.getAll(Arrays.asList("P69905", "P68871", "P02042"), found);
+
+		assertEquals(Arrays.asList("P68871"), missing);
+		assertEquals("HBA_HUMAN", found.get("P69905"));
+		assertEquals("HBD_HUMAN", found.get("P02042"));
+		assertEquals(2, cache.size());
+	}
+
+	@Test
+	public void entriesExpire() throws InterruptedException {
+
+		System.setProperty("tagopsin.cache.ttl", "0");
+		QueryCache<String, String> cache = new QueryCache<>("ttl");
+
+		cache.put("P69905", "HBA_HUMAN", QueryCache.getGeneration());
+		Thread.sleep(5);
+
+		Map<String, String> found = new HashMap<>();
+		assertEquals(Arrays.asList("P69905"), cache.getAll(Arrays.asList("P69905"), found));
+		assertTrue(found.isEmpty());
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void absentKeysAreCached() {
+
+		QueryCache<String, String> cache = new QueryCache<>("absent");
+		cache.put("X00000", null, QueryCache.getGeneration());
+
+		Map<String, String> found = new HashMap<>();
+		assertTrue(cache.getAll(Arrays.asList("X00000"), found).isEmpty());
+		assertTrue(found.isEmpty());
+	}
+
+	@Test
+	public void valuesReadBeforeEmptyingAreDropped() {
+
+		QueryCache<String, String> cache = new QueryCache<>("generation");
+		long generation = QueryCache.getGeneration();
+
+		QueryCache.invalidateAll();
+		cache.put("P69905", "HBA_HUMAN", generation);
+
+		assertEquals(0, cache.size());
+		assertEquals(Arrays.asList("P69905"), cache.getAll(Arrays.asList("P69905"), new HashMap<>()));
+	}
+
+}
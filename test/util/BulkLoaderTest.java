@@ -0,0 +1,74 @@
+package util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Tests of the text format written by the COPY operations of class BulkLoader.java: values
+ * whose characters delimit COPY rows and columns are escaped, nulls are \N and bytea values
+ * are in hex format.
+ *
+ * @since	2026-10-17
+ * @version	1.0
+ *
+ */
+
+public class BulkLoaderTest {
+
+	private static String append(Object value) {
+
+		StringBuilder sb = new StringBuilder();
+		BulkLoader.appendValue(sb, value);
+		return sb.toString();
+	}
+
+	@Test
+	public void plainValues() {
+
+		assertEquals("DNA polymerase III", append("DNA polymerase III"));
+		assertEquals("42", append(42));
+		assertEquals("", append(""));
+	}
+
+	@Test
+	public void nullValue() {
+		assertEquals("\\N", append(null));
+	}
+
+	@Test
+	public void delimitersAreEscaped() {
+
+		assertEquals("a\\tb", append("a\tb"));
+		assertEquals("a\\nb", append("a\nb"));
+		assertEquals("a\\rb", append("a\rb"));
+		assertEquals("C:\\\\path", append("C:\\path"));
+	}
+
+	@Test
+	public void escapedBackslashIsNotNull() {
+
+		//the text \N is a value, not a null
+		assertEquals("\\\\N", append("\\N"));
+	}
+
+	@Test
+	public void byteaInHexFormat() {
+
+		assertEquals("\\\\x00ff7f80", append(new byte[] { 0, -1, 127, -128 }));
+		assertEquals("\\\\x", append(new byte[0]));
+	}
+
+	@Test
+	public void rowsAreTabSeparatedLines() {
+
+		String text = BulkLoader.encode(Arrays.asList(
+				new Object[] { 1, "gene\tA", null },
+				new Object[] { 2, "line\nbreak", "x" }));
+
+		assertEquals("1\tgene\\tA\t\\N\n2\tline\\nbreak\tx\n", text);
+	}
+
+}
@@ -0,0 +1,66 @@
+package util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+/**
+ * Tests of the 2-bit packing of nucleotide sequences (see class NtCodec.java): a sequence
+ * decodes to itself whatever its length and exception runs.
+ *
+ * @since	2026-10-17
+ * @version	1.0
+ *
+ */
+
+public class NtCodecTest {
+
+	@Test
+	public void roundTripOfBases() {
+
+		//lengths that fill the last byte partly and fully
+		for (String seq : new String[] { "", "a", "ac", "acg", "acgt", "acgta", "ttttgggg", "gattacacatg" })
+			assertEquals(seq, NtCodec.decode(NtCodec.encode(seq)));
+	}
+
+	@Test
+	public void roundTripOfExceptionRuns() {
+
+		String[] sequences = {
+			"nnnnacgt",					//run at the start
+			"acgtnnnn",					//run at the end
+			"acNNNNgtRYacgtNt",			//adjacent runs of different characters
+			"ACGTacgt",					//upper case bases
+			"NNNNNNNNN"					//nothing but a run
+		};
+
+		for (String seq : sequences)
+			assertEquals(seq, NtCodec.decode(NtCodec.encode(seq)));
+	}
+
+	@Test
+	public void runsOfOneCharacterAreMerged() {
+
+		//length, 2 bytes of bases, run count, one run of 5 N
+		byte[] packed = NtCodec.encode("acNNNNNg");
+		assertEquals(4 + 2 + 4 + 9, packed.length);
+	}
+
+	@Test
+	public void longSequence() {
+
+		StringBuilder sb = new StringBuilder();
+		for (int i=0; i<100003; i++)
+			sb.append(i % 1000 == 0 ? 'n' : "acgt".charAt((i * 7 + i / 3) & 3));
+
+		String seq = sb.toString();
+		assertEquals(seq, NtCodec.decode(NtCodec.encode(seq)));
+	}
+
+	@Test
+	public void decodeOfNull() {
+		assertNull(NtCodec.decode(null));
+	}
+
+}
@@ -0,0 +1,58 @@
+package util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.util.UUID;
+
+import org.junit.Test;
+
+/**
+ * Tests of the sequence checksums (see class SequenceChecksum.java) against the values of a
+ * UniProt entry: HBA_HUMAN (P69905), whose SQ line gives CRC64 15E13666573BBBAE.
+ *
+ * @since	2026-10-17
+ * @version	1.0
+ *
+ */
+
+public class SequenceChecksumTest {
+
+	private static final String HBA_HUMAN = "MVLSPADKTNVKAAWGKVGAHAGEYGAEALERMFLSFPTTKTYFPHFDLSHGSAQVKGHGKK"
+			+ "VADALTNAVAHVDDMPNALSALSDLHAHKLRVDPVNFKLLSHCLLVTLAAHLPAEFTPAVHASLDKFLASVSTVLTSKYR";
+
+	@Test
+	public void crc64OfUniProtEntry() {
+		assertEquals("15E13666573BBBAE", SequenceChecksum.toHex(SequenceChecksum.crc64(HBA_HUMAN)));
+	}
+
+	@Test
+	public void md5OfUniProtEntry() {
+		assertEquals(UUID.fromString("6077c452-d1dc-6151-040b-2b179e2294c7"), SequenceChecksum.md5(HBA_HUMAN));
+	}
+
+	@Test
+	public void checksumsOfDifferentSequences() {
+
+		String other = HBA_HUMAN.substring(0, HBA_HUMAN.length() - 1);
+
+		assertFalse(SequenceChecksum.crc64(HBA_HUMAN).equals(SequenceChecksum.crc64(other)));
+		assertFalse(SequenceChecksum.md5(HBA_HUMAN).equals(SequenceChecksum.md5(other)));
+	}
+
+	@Test
+	public void checksumsOfMissingSequence() {
+
+		assertNull(SequenceChecksum.crc64(null));
+		assertNull(SequenceChecksum.crc64(""));
+		assertNull(SequenceChecksum.md5(null));
+		assertNull(SequenceChecksum.md5(""));
+	}
+
+	@Test
+	public void hexIsPaddedToSixteenDigits() {
+		assertEquals("00000000000000FF", SequenceChecksum.toHex(255));
+	}
+
+}